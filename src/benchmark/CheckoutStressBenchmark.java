@@ -0,0 +1,118 @@
+package benchmark;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import data_structures.ArrayList;
+import interfaces.List;
+import main.Book;
+import main.CatalogOptions;
+import main.LibraryCatalog;
+import main.User;
+
+/**
+ * Runs checkouts and returns of random books from 1, 2, 4, ... threads up to the number of cores on a catalog in
+ * concurrent mode and reports the operations per second. A reader thread keeps running searches at the same time.
+ * At the end it checks that the number of books checked out matches the successful checkouts minus the successful
+ * returns, which fails if a book was ever checked out twice.
+ *
+ * Usage: java benchmark.CheckoutStressBenchmark [books] [durable] (defaults to 100000; "durable" writes a mutation log)
+ */
+public class CheckoutStressBenchmark {
+
+	private static final long RUN_MILLIS = 2000;
+
+	public static void main(String[] args) throws Exception {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		boolean durable = args.length > 1 && args[1].equals("durable");
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.println("THREADS\tOPS/SECOND");
+		for (int threads = 1;; threads = Math.min(threads * 2, cores)) {
+			System.out.println(threads + "\t" + run(size, threads, durable));
+			if (threads == cores) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Runs the given number of threads against a fresh catalog.
+	 * @return Operations per second.
+	 */
+	private static long run(int size, int threads, boolean durable) throws Exception {
+		CatalogOptions options = new CatalogOptions();
+		options.setConcurrent(true);
+		LibraryCatalog catalog;
+		File log = null;
+		if (durable) {
+			log = File.createTempFile("catalog", ".log");
+			options.setLogPath(log.getPath());
+			options.setCatalogPath(ParallelLoadBenchmark.writeCatalog(size).getPath());
+			options.setUserPath(ParallelLoadBenchmark.writeUsers().getPath());
+			catalog = new LibraryCatalog(options);
+		} else {
+			catalog = new LibraryCatalog(IdLookupBenchmark.syntheticBooks(size), new ArrayList<User>(), options);
+		}
+		int before = checkedOut(catalog);
+
+		AtomicBoolean stop = new AtomicBoolean();
+		AtomicLong operations = new AtomicLong();
+		AtomicLong balance = new AtomicLong();
+		CountDownLatch done = new CountDownLatch(threads);
+		for (int t = 0; t < threads; t++) {
+			long seed = t;
+			new Thread(() -> {
+				Random random = new Random(seed);
+				long ops = 0;
+				long net = 0;
+				while (!stop.get()) {
+					int id = 1 + random.nextInt(size);
+					if (random.nextBoolean()) {
+						if (catalog.checkOutBook(id))
+							net++;
+					} else if (catalog.returnBook(id)) {
+						net--;
+					}
+					ops++;
+				}
+				operations.addAndGet(ops);
+				balance.addAndGet(net);
+				done.countDown();
+			}).start();
+		}
+		Thread reader = new Thread(() -> {
+			while (!stop.get())
+				catalog.searchForBook(b -> b.isCheckedOut() && b.getId() % 997 == 0);
+		});
+		reader.start();
+
+		Thread.sleep(RUN_MILLIS);
+		stop.set(true);
+		done.await();
+		reader.join();
+
+		int after = checkedOut(catalog);
+		if (after - before != balance.get()) {
+			throw new IllegalStateException("Checked out books changed by " + (after - before) + " but successful operations add up to " + balance.get());
+		}
+		catalog.close();
+		if (log != null) {
+			delete(options.getCatalogPath());
+			delete(options.getUserPath());
+			log.delete();
+		}
+		return operations.get() * 1000 / RUN_MILLIS;
+	}
+
+	private static int checkedOut(LibraryCatalog catalog) {
+		List<Book> books = catalog.searchForBook(b -> b.isCheckedOut());
+		return books.size();
+	}
+
+	private static void delete(String path) {
+		new File(path).delete();
+	}
+}
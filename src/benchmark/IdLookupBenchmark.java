@@ -0,0 +1,79 @@
+package benchmark;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+
+import data_structures.ArrayList;
+import interfaces.List;
+import main.Book;
+import main.LibraryCatalog;
+import main.User;
+
+/**
+ * Measures the latency of the ID operations of LibraryCatalog (checkOutBook, returnBook, getBookAvailability)
+ * on synthetic catalogs from 50 to 5 million books. With the ID index the mean and p99 should stay flat
+ * as the catalog grows.
+ *
+ * Usage: java benchmark.IdLookupBenchmark [largest catalog size] (defaults to 5000000)
+ */
+public class IdLookupBenchmark {
+
+	private static final int OPERATIONS = 200_000;
+
+	public static void main(String[] args) {
+		int largest = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+		System.out.println("BOOKS\t\tMEAN (ns)\tP99 (ns)");
+		for (int size = 50; size <= largest; size *= 10) {
+			LibraryCatalog catalog = new LibraryCatalog(syntheticBooks(size), new ArrayList<User>());
+			// Warm up so the JIT has compiled the paths we measure
+			run(catalog, size, new long[OPERATIONS], 1);
+			long[] latencies = new long[OPERATIONS];
+			run(catalog, size, latencies, 2);
+			Arrays.sort(latencies);
+			long total = 0;
+			for (long l : latencies)
+				total += l;
+			System.out.println(size + "\t\t" + (total / OPERATIONS) + "\t\t" + latencies[OPERATIONS * 99 / 100]);
+		}
+	}
+
+	/**
+	 * Runs a random mix of checkouts, returns and availability checks and records how long each one took.
+	 */
+	private static void run(LibraryCatalog catalog, int size, long[] latencies, long seed) {
+		Random random = new Random(seed);
+		for (int i = 0; i < latencies.length; i++) {
+			int id = 1 + random.nextInt(size);
+			int op = random.nextInt(3);
+			long start = System.nanoTime();
+			if (op == 0)
+				catalog.checkOutBook(id);
+			else if (op == 1)
+				catalog.returnBook(id);
+			else
+				catalog.getBookAvailability(id);
+			latencies[i] = System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Creates size books with IDs 1 to size. Half of them start checked out.
+	 */
+	static List<Book> syntheticBooks(int size) {
+		String[] genres = { "Adventure", "Fiction", "Classics", "Mystery", "Science Fiction" };
+		LocalDate date = LocalDate.of(2023, 7, 15);
+		List<Book> books = new ArrayList<>(size);
+		for (int id = 1; id <= size; id++) {
+			Book book = new Book();
+			book.setId(id);
+			book.setTitle("Title " + id);
+			book.setAuthor("Author " + (id % 1000));
+			book.setGenre(genres[id % genres.length]);
+			book.setLastCheckOut(date);
+			book.setCheckedOut(id % 2 == 0);
+			books.add(book);
+		}
+		return books;
+	}
+}
@@ -0,0 +1,66 @@
+package benchmark;
+
+import data_structures.DoublyLinkedList;
+import data_structures.SinglyLinkedList;
+import interfaces.List;
+
+/**
+ * Measures the linked lists for sizes doubling up to a million elements: how long it takes to build a
+ * SinglyLinkedList by appending, and how long a loop calling get(i) for every index takes on both linked lists.
+ * With appends in constant time and get(i) continuing from the last node found, the time per element should
+ * stay flat as the lists grow.
+ *
+ * Usage: java benchmark.LinkedListBenchmark [largest size] (defaults to 1000000)
+ */
+public class LinkedListBenchmark {
+
+	public static void main(String[] args) {
+		int largest = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		// Warm up so the JIT has compiled the paths we measure
+		indexedLoop(build(new SinglyLinkedList<>(), largest));
+		indexedLoop(build(new DoublyLinkedList<>(), largest));
+		System.out.println("ELEMENTS\tBUILD (ns/element)\tSINGLY get(i) (ns/element)\tDOUBLY get(i) (ns/element)");
+		for (int size = largest / 8; size <= largest; size *= 2) {
+			long buildBest = Long.MAX_VALUE;
+			long singlyBest = Long.MAX_VALUE;
+			long doublyBest = Long.MAX_VALUE;
+			for (int i = 0; i < 3; i++) {
+				long start = System.nanoTime();
+				List<Integer> singly = build(new SinglyLinkedList<>(), size);
+				buildBest = Math.min(buildBest, System.nanoTime() - start);
+				if (singly.size() != size || singly.last() != size - 1) {
+					throw new IllegalStateException("Built a wrong list of " + singly.size() + " elements");
+				}
+				singlyBest = Math.min(singlyBest, indexedLoop(singly));
+				doublyBest = Math.min(doublyBest, indexedLoop(build(new DoublyLinkedList<>(), size)));
+			}
+			System.out.println(size + "\t\t" + buildBest / size + "\t\t\t" + singlyBest / size + "\t\t\t\t" + doublyBest / size);
+		}
+	}
+
+	/**
+	 * Fills list with the numbers from 0 to size - 1 by appending them one by one.
+	 */
+	private static List<Integer> build(List<Integer> list, int size) {
+		for (int i = 0; i < size; i++) {
+			list.add(i);
+		}
+		return list;
+	}
+
+	/**
+	 * Reads every element by index and returns how long it took.
+	 */
+	private static long indexedLoop(List<Integer> list) {
+		long start = System.nanoTime();
+		long sum = 0;
+		for (int i = 0; i < list.size(); i++) {
+			sum += list.get(i);
+		}
+		long elapsed = System.nanoTime() - start;
+		if (sum != (long) list.size() * (list.size() - 1) / 2) {
+			throw new IllegalStateException("Read the wrong elements");
+		}
+		return elapsed;
+	}
+}
@@ -0,0 +1,89 @@
+package benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import main.CatalogOptions;
+import main.LibraryCatalog;
+
+/**
+ * Measures how many rows per second the books loader reads from a synthetic catalog file, first with the
+ * single-threaded loader and then with the parallel loader on 1, 2, 4, ... threads up to the number of cores.
+ *
+ * Usage: java benchmark.ParallelLoadBenchmark [rows] (defaults to 2000000)
+ */
+public class ParallelLoadBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+		File catalog = writeCatalog(rows);
+		File users = writeUsers();
+		try {
+			CatalogOptions options = new CatalogOptions();
+			options.setCatalogPath(catalog.getPath());
+			options.setUserPath(users.getPath());
+
+			System.out.println("MODE\t\tTHREADS\tROWS/SECOND");
+			System.out.println("sequential\t1\t" + rowsPerSecond(options, rows));
+			options.setParallelLoad(true);
+			int cores = Runtime.getRuntime().availableProcessors();
+			// Powers of two, finishing with the number of cores
+			for (int threads = 1;; threads = Math.min(threads * 2, cores)) {
+				options.setLoadThreads(threads);
+				System.out.println("parallel\t" + threads + "\t" + rowsPerSecond(options, rows));
+				if (threads == cores) {
+					break;
+				}
+			}
+		} finally {
+			catalog.delete();
+			users.delete();
+		}
+	}
+
+	/**
+	 * Loads the catalog a few times and returns the best rate.
+	 */
+	private static long rowsPerSecond(CatalogOptions options, int rows) throws IOException {
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < 3; i++) {
+			long start = System.nanoTime();
+			LibraryCatalog catalog = new LibraryCatalog(options);
+			long elapsed = System.nanoTime() - start;
+			if (catalog.getBookCatalog().size() != rows) {
+				throw new IllegalStateException("Loaded " + catalog.getBookCatalog().size() + " books, expected " + rows);
+			}
+			best = Math.min(best, elapsed);
+		}
+		return rows * 1_000_000_000L / Math.max(best, 1);
+	}
+
+	/**
+	 * Writes a books file with the same columns as data/catalog.csv.
+	 */
+	static File writeCatalog(int rows) throws IOException {
+		String[] genres = { "Adventure", "Fiction", "Classics", "Mystery", "Science Fiction" };
+		File file = File.createTempFile("catalog", ".csv");
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+			writer.write("ID,Title,Author,Genre,Last Checkout Date,Checked Out\n");
+			for (int id = 1; id <= rows; id++) {
+				writer.write(id + ",Title " + id + ",Author " + (id % 1000) + "," + genres[id % genres.length]
+						+ ",2023-0" + (1 + id % 9) + "-1" + (id % 10) + "," + (id % 2 == 0) + "\n");
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * Writes a small users file so the benchmark only measures the books.
+	 */
+	static File writeUsers() throws IOException {
+		File file = File.createTempFile("user", ".csv");
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+			writer.write("ID,Full Name,Books\n1,Jane Doe,{2 4 6}\n");
+		}
+		return file;
+	}
+}
@@ -0,0 +1,119 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.function.IntFunction;
+
+import data_structures.ArrayList;
+import data_structures.IntArrayList;
+import interfaces.List;
+import main.Book;
+import main.CatalogOptions;
+import main.LibraryCatalog;
+import main.User;
+
+/**
+ * Measures how long writing the report takes on a synthetic catalog, first on a single thread and then in parallel on
+ * 1, 2, 4, ... threads up to the number of cores. The report is written to a writer that drops it, so only building
+ * it is measured. Every parallel report is checked to be the same as the sequential one. A catalog keeps the pool of its
+ * first parallel report, so each thread count gets a catalog of its own over the same books and users.
+ *
+ * Usage: java -Xmx6g benchmark.ParallelReportBenchmark [books] (defaults to 10000000)
+ */
+public class ParallelReportBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+		List<Book> books = IdLookupBenchmark.syntheticBooks(size);
+		List<User> users = syntheticUsers(books);
+		LibraryCatalog sequential = new LibraryCatalog(books, users, new CatalogOptions());
+
+		long expected = checksum(sequential);
+		System.out.println("MODE\t\tTHREADS\tMILLISECONDS");
+		System.out.println("sequential\t1\t" + bestMillis(sequential));
+		sequential.close();
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1;; threads = Math.min(threads * 2, cores)) {
+			CatalogOptions options = new CatalogOptions();
+			options.setParallelReport(true);
+			options.setReportThreads(threads);
+			try (LibraryCatalog catalog = new LibraryCatalog(books, users, options)) {
+				if (checksum(catalog) != expected) {
+					throw new IllegalStateException("Parallel report on " + threads + " threads differs from the sequential one");
+				}
+				System.out.println("parallel\t" + threads + "\t" + bestMillis(catalog));
+			}
+			if (threads == cores) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Writes the report a few times and returns the best time.
+	 */
+	private static long bestMillis(LibraryCatalog catalog) throws IOException {
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < 3; i++) {
+			long start = System.nanoTime();
+			catalog.writeReport(Writer.nullWriter());
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best / 1_000_000;
+	}
+
+	/**
+	 * Writes the report into a hash of its characters.
+	 */
+	private static long checksum(LibraryCatalog catalog) throws IOException {
+		long[] hash = { 17 };
+		catalog.writeReport(new Writer() {
+			@Override
+			public void write(char[] buffer, int offset, int length) {
+				for (int i = offset; i < offset + length; i++) {
+					hash[0] = hash[0] * 31 + buffer[i];
+				}
+			}
+
+			@Override
+			public void write(String s, int offset, int length) {
+				for (int i = offset; i < offset + length; i++) {
+					hash[0] = hash[0] * 31 + s.charAt(i);
+				}
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		});
+		return hash[0];
+	}
+
+	/**
+	 * Creates one user for every 100 books, holding the checked out books among them. The books have IDs 1 to size in
+	 * order, so a book is looked up by its position.
+	 */
+	private static List<User> syntheticUsers(List<Book> books) {
+		List<User> users = new ArrayList<>(Math.max(books.size() / 100, 1));
+		IntFunction<Book> lookup = id -> books.get(id - 1);
+		User user = null;
+		int i = 0;
+		for (Book book : books) {
+			if (i++ % 100 == 0) {
+				user = new User();
+				user.setId(users.size() + 1);
+				user.setName("User " + user.getId());
+				user.setCheckedOutIds(new IntArrayList(), lookup);
+				users.add(user);
+			}
+			if (book.isCheckedOut()) {
+				user.getCheckedOutIds().add(book.getId());
+			}
+		}
+		return users;
+	}
+}
@@ -1,9 +1,13 @@
 package data_structures;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Function;
 
+import interfaces.FilterFunction;
 import interfaces.List;
 
 
@@ -91,8 +95,7 @@ public class ArrayList<E> implements List<E>{
 		if(this.size == this.elements.length)
 			reallocate();
 		// Shift values to the right
-		for(int i = size; i > index; i--)
-			this.elements[i] = this.elements[i-1];
+		System.arraycopy(this.elements, index, this.elements, index + 1, this.size - index);
 		// Place new value
 		this.elements[index] = obj;
 		// Increase size
@@ -104,14 +107,86 @@ public class ArrayList<E> implements List<E>{
 	 * elements in it. This new array then replaces the old elements array.
 	 */
 	private void reallocate() {
-		E[] temp = (E[]) new Object[this.size*2];
-		
-		for(int i=0; i<this.elements.length; i++) {
-			temp[i] = this.elements[i];
-			elements[i] = null;
+		// At least one more space, in case the array was empty
+		ensureCapacity(this.size + 1);
+	}
+	
+	/**
+	 * Adds every element of other at the end of the array.
+	 * The array grows at most once, and another ArrayList is copied with a single System.arraycopy.
+	 * 
+	 * @param other - List whose elements we wish to add
+	 */
+	@Override
+	public void addAll(List<E> other) {
+		int count = other.size();
+		ensureCapacity(this.size + count);
+		if(other instanceof ArrayList) {
+			// Works when other is this list too, the copy reads positions that are not written
+			System.arraycopy(((ArrayList<E>) other).elements, 0, this.elements, this.size, count);
 		}
-		this.elements = temp;
-		
+		else {
+			int i = this.size;
+			for(E e: other)
+				this.elements[i++] = e;
+		}
+		this.size += count;
+	}
+	
+	/**
+	 * Adds every element of other starting at position index.
+	 * The values from index on are shifted count positions to the right once, instead of once per element.
+	 * 
+	 * @param index - position where the first element of other will be
+	 * @param other - List whose elements we wish to add
+	 */
+	@Override
+	public void addAll(int index, List<E> other) {
+		// Check bounds
+		if(index < 0 || index > size)
+			throw new IndexOutOfBoundsException();
+		// Take the values out first in case other is this list
+		Object[] values = toArray(other);
+		int count = values.length;
+		ensureCapacity(this.size + count);
+		// Shift values to the right, then place the new ones in the gap
+		System.arraycopy(this.elements, index, this.elements, index + count, this.size - index);
+		System.arraycopy(values, 0, this.elements, index, count);
+		this.size += count;
+	}
+	
+	/**
+	 * Makes the array fit at least minCapacity elements.
+	 * If it has to grow, the new array is at least twice as long as the current one so adding one by one stays cheap.
+	 * 
+	 * @param minCapacity - how many elements the array should fit
+	 */
+	@Override
+	public void ensureCapacity(int minCapacity) {
+		if(minCapacity > this.elements.length)
+			this.elements = Arrays.copyOf(this.elements, Math.max(minCapacity, this.elements.length * 2));
+	}
+	
+	/**
+	 * Shrinks the array to the current size, freeing the empty spaces at the end.
+	 */
+	@Override
+	public void trimToSize() {
+		if(this.size < this.elements.length)
+			this.elements = Arrays.copyOf(this.elements, this.size);
+	}
+	
+	/**
+	 * Copies the elements of a List into a new array.
+	 */
+	private static <E> Object[] toArray(List<E> list) {
+		if(list instanceof ArrayList)
+			return Arrays.copyOf(((ArrayList<E>) list).elements, list.size());
+		Object[] values = new Object[list.size()];
+		int i = 0;
+		for(E e: list)
+			values[i++] = e;
+		return values;
 	}
 
 	/**
@@ -165,8 +240,7 @@ public class ArrayList<E> implements List<E>{
 		if(index < 0 || index >= size)
 			throw new IndexOutOfBoundsException();
 		// Shift values to the left
-		for(int i = index; i < this.size-1; i++)
-			this.elements[i] = this.elements[i+1];
+		System.arraycopy(this.elements, index + 1, this.elements, index, this.size - index - 1);
 		// Null the last position
 		this.elements[this.size-1]= null;
 		// Decrease size
@@ -229,17 +303,31 @@ public class ArrayList<E> implements List<E>{
 	 */
 	@Override
 	public int removeAll(E obj) {
-		// Counter
-		int count = 0;
-		
-//		while(remove(obj)) 
-//			count++;
-		boolean found = remove(obj);
-		while(found) {
-			count++;
-			found = remove(obj);
-			
+		return removeIf(e -> e.equals(obj));
+	}
+	
+	/**
+	 * Removes every element for which func returns true.
+	 * It goes through the array once, moving each kept value straight to its final position,
+	 * so every value is shifted at most once no matter how many are removed.
+	 * 
+	 * @param func - condition of the elements we want to remove
+	 * @return Returns the total number of elements removed
+	 */
+	@Override
+	public int removeIf(FilterFunction<E> func) {
+		// Next position to place a kept value
+		int kept = 0;
+		for(int i = 0; i < this.size; i++) {
+			E e = this.elements[i];
+			if(!func.filter(e))
+				this.elements[kept++] = e;
 		}
+		// Null the positions left over at the end
+		for(int i = kept; i < this.size; i++)
+			this.elements[i] = null;
+		int count = this.size - kept;
+		this.size = kept;
 		return count;
 	}
 
@@ -313,6 +401,17 @@ public class ArrayList<E> implements List<E>{
 		return new ArrayListIterator<E>();
 	}
 	
+	/**
+	 * Returns a spliterator over the filled positions of the array. It knows its size and splits
+	 * by cutting its range of positions in half, so parallel streams divide the work evenly.
+	 * 
+	 * @return - Spliterator for this List
+	 */
+	@Override
+	public Spliterator<E> spliterator() {
+		return Spliterators.spliterator(this.elements, 0, this.size, Spliterator.ORDERED);
+	}
+	
 	/**
 	 * Returns a String version of the ArrayList. 
 	 * The format will be: { A, B, C, null, null }, where each element within the brackets { }
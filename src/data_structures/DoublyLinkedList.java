@@ -2,7 +2,10 @@ package data_structures;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 
+import interfaces.FilterFunction;
 import interfaces.List;
 
 
@@ -105,6 +108,28 @@ public class DoublyLinkedList<E> implements List<E>{
 	private Node<E> header;
 	private Node<E> trailer;
 	private int size;
+	/*
+	 * The last node found by position and its position. getNode starts from whichever of header,
+	 * trailer or this node is closest to the position it looks for, so going through the list by
+	 * index costs one step per element. cursor is null when there is no valid last node.
+	 * 
+	 * Both are kept in one Cursor that is replaced and never changed, so threads calling get at the
+	 * same time on a list nobody is changing each read a node together with its own position.
+	 */
+	private Cursor cursor;
+	
+	/**
+	 * A node and its position, see cursor.
+	 */
+	private class Cursor {
+		private final Node<E> node;
+		private final int index;
+		
+		Cursor(Node<E> node, int index) {
+			this.node = node;
+			this.index = index;
+		}
+	}
 	
 	public DoublyLinkedList() {
 		// Initialize dummies
@@ -127,11 +152,31 @@ public class DoublyLinkedList<E> implements List<E>{
 		// Check the index is valid
 		if(index < 0 || index >size)
 			throw new IndexOutOfBoundsException();
-		// We start at head
-		Node<E> temp = header.getNext();
+		if(index == size)
+			return trailer;
+		// Start from the closest of the front, the back and the last node found
+		Node<E> temp;
+		int i;
+		if(index <= size - index) {
+			temp = header.getNext();
+			i = 0;
+		} else {
+			temp = trailer.getPrev();
+			i = size - 1;
+		}
+		Cursor last = cursor;
+		if(last != null && Math.abs(index - last.index) < Math.abs(index - i)) {
+			temp = last.node;
+			i = last.index;
+		}
 		// Move through the list until we find the node at position index
-		for(int i = 0; i < index; i++)
+		for(; i < index; i++)
 			temp = temp.getNext();
+		for(; i > index; i--)
+			temp = temp.getPrev();
+		// Remember it for the next search
+		if(last == null || last.node != temp)
+			cursor = new Cursor(temp, index);
 		// Return the node
 		return temp;
 	}
@@ -158,10 +203,71 @@ public class DoublyLinkedList<E> implements List<E>{
 			Node<E> newNode = new Node<E>(curr, curr.getPrev(), obj);
 			curr.getPrev().setNext(newNode);
 			curr.setPrev(newNode);
+			// The nodes from index on moved one position forward
+			if(cursor != null && cursor.index >= index)
+				cursor = new Cursor(cursor.node, cursor.index + 1);
 			size++;
 		}
 	}
 
+	/**
+	 * Adds every element of other to the end of the list.
+	 */
+	@Override
+	public void addAll(List<E> other) {
+		addAll(size, other);
+	}
+	
+	/**
+	 * Adds every element of other starting at position index. The new nodes are linked into a chain of
+	 * their own first, then the chain is spliced in front of the node at index with four reference changes.
+	 */
+	@Override
+	public void addAll(int index, List<E> other) {
+		if(index < 0 || index > size)
+			throw new IndexOutOfBoundsException();
+		// Build the chain of new nodes. Nothing in this list changes yet, so other can be this list.
+		Node<E> first = null;
+		Node<E> last = null;
+		int count = 0;
+		for(E e: other) {
+			Node<E> newNode = new Node<E>(null, last, e);
+			if(first == null)
+				first = newNode;
+			else
+				last.setNext(newNode);
+			last = newNode;
+			count++;
+		}
+		if(count == 0)
+			return;
+		// Splice the chain in between the node at index and the one before it
+		Node<E> curr = getNode(index);
+		Node<E> before = curr.getPrev();
+		before.setNext(first);
+		first.setPrev(before);
+		last.setNext(curr);
+		curr.setPrev(last);
+		// The nodes from index on moved count positions forward
+		if(cursor != null && cursor.index >= index)
+			cursor = new Cursor(cursor.node, cursor.index + count);
+		size += count;
+	}
+	
+	/**
+	 * Does nothing, nodes are created as elements are added.
+	 */
+	@Override
+	public void ensureCapacity(int minCapacity) {
+	}
+	
+	/**
+	 * Does nothing, there is never space reserved beyond the last node.
+	 */
+	@Override
+	public void trimToSize() {
+	}
+
 	@Override
 	public E get(int index) {
 		if(index < 0 || index >=size)
@@ -184,9 +290,17 @@ public class DoublyLinkedList<E> implements List<E>{
 		if(index < 0 || index >=size)
 			throw new IndexOutOfBoundsException();
 		Node<E> curr = getNode(index);
-		curr.getPrev().setNext(curr.getNext());
-		curr.getNext().setPrev(curr.getPrev());
+		Node<E> next = curr.getNext();
+		curr.getPrev().setNext(next);
+		next.setPrev(curr.getPrev());
 		curr.clear();
+		// The nodes after index moved one position back, and the next node is now at index
+		if(cursor != null) {
+			if(cursor.index == index)
+				cursor = next == trailer ? null : new Cursor(next, index);
+			else if(cursor.index > index)
+				cursor = new Cursor(cursor.node, cursor.index - 1);
+		}
 		size--;
 		return true;
 	}
@@ -213,13 +327,30 @@ public class DoublyLinkedList<E> implements List<E>{
 
 	@Override
 	public int removeAll(E obj) {
-		// TODO Auto-generated method stub
+		return removeIf(e -> e.equals(obj));
+	}
+	
+	/**
+	 * Removes every node whose element func returns true for, in a single pass from header to trailer.
+	 */
+	@Override
+	public int removeIf(FilterFunction<E> func) {
 		int count = 0;
-		int index = firstIndex(obj);
-		while(index != -1) {
-			remove(index);
-			index = firstIndex(obj);
-			count++;
+		Node<E> temp = header.getNext();
+		while(temp != trailer) {
+			Node<E> next = temp.getNext();
+			if(func.filter(temp.getElement())) {
+				temp.getPrev().setNext(next);
+				next.setPrev(temp.getPrev());
+				temp.clear();
+				count++;
+			}
+			temp = next;
+		}
+		if(count > 0) {
+			// Positions may have changed anywhere in the list
+			cursor = null;
+			size -= count;
 		}
 		return count;
 	}
@@ -285,6 +416,16 @@ public class DoublyLinkedList<E> implements List<E>{
 		return str;
 	}
 	
+	/**
+	 * Returns a spliterator that knows the size of the list. Nodes can only be reached one after
+	 * the other, so it splits by copying a batch of elements into an array that another thread
+	 * can work on, with batches growing as the list is consumed.
+	 */
+	@Override
+	public Spliterator<E> spliterator() {
+		return Spliterators.spliterator(iterator(), this.size, Spliterator.ORDERED);
+	}
+	
 	@Override
 	public Iterator<E> iterator() {
 		// TODO Auto-generated method stub
@@ -0,0 +1,159 @@
+package data_structures;
+
+import java.util.Arrays;
+
+/**
+ * List of primitive ints backed by an int array, so no Integer boxing is done and each element takes 4 bytes.
+ * An empty list shares a single empty array and only gets its own array once something is added.
+ */
+public class IntArrayList {
+
+	// Shared by every list that has never held anything
+	private static final int[] EMPTY = {};
+	// Room given to a list the first time something is added to it
+	private static final int FIRST_CAPACITY = 4;
+
+	// Holds the values in positions 0 to size - 1
+	private int[] elements;
+	// How many values are present
+	private int size;
+
+	/**
+	 * Creates an empty list that doesn't allocate an array until the first value is added.
+	 */
+	public IntArrayList() {
+		this.elements = EMPTY;
+		this.size = 0;
+	}
+
+	/**
+	 * Creates an empty list with room for initialCapacity values.
+	 * @param initialCapacity - how many values fit before the list has to grow
+	 */
+	public IntArrayList(int initialCapacity) {
+		this.elements = initialCapacity == 0 ? EMPTY : new int[initialCapacity];
+		this.size = 0;
+	}
+
+	/**
+	 * Returns how many values are in the list.
+	 * @return (int) number of values
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns whether the list has no values.
+	 * @return (boolean) True if empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Adds a value at the end of the list.
+	 * @param value - the value to add
+	 */
+	public void add(int value) {
+		if (size == elements.length)
+			ensureCapacity(size + 1);
+		elements[size++] = value;
+	}
+
+	/**
+	 * Returns the value at position index.
+	 * @param index - position of the value
+	 * @return (int) the value
+	 * @throws IndexOutOfBoundsException if index is not between 0 and size - 1
+	 */
+	public int get(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException();
+		return elements[index];
+	}
+
+	/**
+	 * Replaces the value at position index.
+	 * @param index - position of the value
+	 * @param value - the new value
+	 * @return (int) the value that was replaced
+	 * @throws IndexOutOfBoundsException if index is not between 0 and size - 1
+	 */
+	public int set(int index, int value) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException();
+		int old = elements[index];
+		elements[index] = value;
+		return old;
+	}
+
+	/**
+	 * Removes the value at position index, shifting the values after it one position to the left.
+	 * @param index - position of the value to remove
+	 * @return (int) the value that was removed
+	 * @throws IndexOutOfBoundsException if index is not between 0 and size - 1
+	 */
+	public int removeAt(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException();
+		int old = elements[index];
+		System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+		size--;
+		return old;
+	}
+
+	/**
+	 * Returns the first position where value appears.
+	 * @param value - the value to search for
+	 * @return (int) its position, or -1 if it is not in the list
+	 */
+	public int indexOf(int value) {
+		for (int i = 0; i < size; i++) {
+			if (elements[i] == value)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Checks whether value is in the list.
+	 * @param value - the value to search for
+	 * @return (boolean) True if present, false otherwise
+	 */
+	public boolean contains(int value) {
+		return indexOf(value) != -1;
+	}
+
+	/**
+	 * Removes every value. The array is kept for reuse.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Makes the array fit at least minCapacity values. If it has to grow it at least doubles.
+	 * @param minCapacity - how many values the list should fit
+	 */
+	public void ensureCapacity(int minCapacity) {
+		if (minCapacity > elements.length)
+			elements = Arrays.copyOf(elements, Math.max(minCapacity, Math.max(elements.length * 2, FIRST_CAPACITY)));
+	}
+
+	/**
+	 * Shrinks the array to the number of values, going back to the shared empty array if there are none.
+	 */
+	public void trimToSize() {
+		if (size < elements.length)
+			elements = size == 0 ? EMPTY : Arrays.copyOf(elements, size);
+	}
+
+	/**
+	 * Copies the values into a new array.
+	 * @return (int[]) the values in order
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(elements, size);
+	}
+}
@@ -0,0 +1,185 @@
+package data_structures;
+
+/**
+ * Hash map whose keys are primitive ints. It uses open addressing with linear probing, so a lookup is
+ * a few array reads and no Integer boxing is done on get, put or remove.
+ *
+ * @param <V> - Type of the values stored in the map.
+ */
+@SuppressWarnings("unchecked")
+public class IntHashMap<V> {
+
+	// Parallel arrays holding the keys and the values. A null value marks an empty slot.
+	private int[] keys;
+	private V[] values;
+	// How many entries are present
+	private int size;
+
+	/**
+	 * Creates an empty map with room for 16 entries before it has to grow.
+	 */
+	public IntHashMap() {
+		this(16);
+	}
+
+	/**
+	 * Creates an empty map sized so that expectedSize entries fit without growing.
+	 * @param expectedSize - how many entries we expect to store
+	 */
+	public IntHashMap(int expectedSize) {
+		int capacity = 16;
+		// Keep the table at most half full
+		while (capacity < expectedSize * 2)
+			capacity <<= 1;
+		this.keys = new int[capacity];
+		this.values = (V[]) new Object[capacity];
+		this.size = 0;
+	}
+
+	/**
+	 * Returns how many entries are in the map.
+	 * @return (int) number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns whether the map has no entries.
+	 * @return (boolean) True if empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the value stored under key.
+	 * @param key - key to look for
+	 * @return (V) the value, or null if the key is not present
+	 */
+	public V get(int key) {
+		int mask = keys.length - 1;
+		for (int i = slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key)
+				return values[i];
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether key is present in the map.
+	 * @param key - key to look for
+	 * @return (boolean) True if present, false otherwise
+	 */
+	public boolean containsKey(int key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Stores value under key, replacing whatever was there.
+	 * @param key - key of the entry
+	 * @param value - value of the entry, must not be null
+	 * @return (V) the value that was replaced, or null if the key is new
+	 */
+	public V put(int key, V value) {
+		if (value == null)
+			throw new IllegalArgumentException("Null values are not allowed");
+		// Grow before the table gets more than half full
+		if ((size + 1) * 2 > keys.length)
+			resize(keys.length * 2);
+		int mask = keys.length - 1;
+		int i = slot(key, mask);
+		while (values[i] != null) {
+			if (keys[i] == key) {
+				V old = values[i];
+				values[i] = value;
+				return old;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		size++;
+		return null;
+	}
+
+	/**
+	 * Removes the entry stored under key.
+	 * @param key - key of the entry to remove
+	 * @return (V) the value that was removed, or null if the key was not present
+	 */
+	public V remove(int key) {
+		int mask = keys.length - 1;
+		int i = slot(key, mask);
+		while (values[i] != null) {
+			if (keys[i] == key) {
+				V old = values[i];
+				closeGap(i, mask);
+				size--;
+				return old;
+			}
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Removes every entry. The table keeps its current capacity.
+	 */
+	public void clear() {
+		for (int i = 0; i < values.length; i++)
+			values[i] = null;
+		size = 0;
+	}
+
+	/**
+	 * Empties slot gap and moves back any later entry of the same probe run that could no longer be
+	 * reached, so lookups never stop early at a hole.
+	 */
+	private void closeGap(int gap, int mask) {
+		int i = gap;
+		while (true) {
+			i = (i + 1) & mask;
+			if (values[i] == null)
+				break;
+			int home = slot(keys[i], mask);
+			// Move the entry if its home slot is not between the gap and its current slot (cyclically)
+			boolean reachable = gap <= i ? (gap < home && home <= i) : (gap < home || home <= i);
+			if (!reachable) {
+				keys[gap] = keys[i];
+				values[gap] = values[i];
+				gap = i;
+			}
+		}
+		values[gap] = null;
+	}
+
+	/**
+	 * Rebuilds the table with the given capacity and inserts every entry again.
+	 */
+	private void resize(int capacity) {
+		int[] oldKeys = keys;
+		V[] oldValues = values;
+		keys = new int[capacity];
+		values = (V[]) new Object[capacity];
+		int mask = capacity - 1;
+		for (int j = 0; j < oldValues.length; j++) {
+			if (oldValues[j] != null) {
+				int i = slot(oldKeys[j], mask);
+				while (values[i] != null)
+					i = (i + 1) & mask;
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	/**
+	 * Home slot of a key. Sequential keys are spread with a multiplicative hash so they don't
+	 * cluster into one long probe run.
+	 */
+	private static int slot(int key, int mask) {
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+}
@@ -0,0 +1,194 @@
+package data_structures;
+
+/**
+ * Hash map from primitive ints to primitive ints, the same as IntHashMap but without an object per value.
+ * It uses open addressing with linear probing. NO_VALUE can't be stored, get returns it for a missing key.
+ */
+public class IntIntHashMap {
+
+	// Returned for a key that is not present, and marks an empty slot
+	public static final int NO_VALUE = -1;
+
+	// Parallel arrays holding the keys and the values
+	private int[] keys;
+	private int[] values;
+	// How many entries are present
+	private int size;
+
+	/**
+	 * Creates an empty map with room for 16 entries before it has to grow.
+	 */
+	public IntIntHashMap() {
+		this(16);
+	}
+
+	/**
+	 * Creates an empty map sized so that expectedSize entries fit without growing.
+	 * @param expectedSize - how many entries we expect to store
+	 */
+	public IntIntHashMap(int expectedSize) {
+		int capacity = 16;
+		// Keep the table at most half full
+		while (capacity < expectedSize * 2)
+			capacity <<= 1;
+		this.keys = new int[capacity];
+		this.values = newValues(capacity);
+		this.size = 0;
+	}
+
+	/**
+	 * Returns how many entries are in the map.
+	 * @return (int) number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns whether the map has no entries.
+	 * @return (boolean) True if empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the value stored under key.
+	 * @param key - key to look for
+	 * @return (int) the value, or NO_VALUE if the key is not present
+	 */
+	public int get(int key) {
+		int mask = keys.length - 1;
+		for (int i = slot(key, mask); values[i] != NO_VALUE; i = (i + 1) & mask) {
+			if (keys[i] == key)
+				return values[i];
+		}
+		return NO_VALUE;
+	}
+
+	/**
+	 * Checks whether key is present in the map.
+	 * @param key - key to look for
+	 * @return (boolean) True if present, false otherwise
+	 */
+	public boolean containsKey(int key) {
+		return get(key) != NO_VALUE;
+	}
+
+	/**
+	 * Stores value under key, replacing whatever was there.
+	 * @param key - key of the entry
+	 * @param value - value of the entry, must not be NO_VALUE
+	 * @return (int) the value that was replaced, or NO_VALUE if the key is new
+	 */
+	public int put(int key, int value) {
+		if (value == NO_VALUE)
+			throw new IllegalArgumentException("NO_VALUE can't be stored");
+		// Grow before the table gets more than half full
+		if ((size + 1) * 2 > keys.length)
+			resize(keys.length * 2);
+		int mask = keys.length - 1;
+		int i = slot(key, mask);
+		while (values[i] != NO_VALUE) {
+			if (keys[i] == key) {
+				int old = values[i];
+				values[i] = value;
+				return old;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		size++;
+		return NO_VALUE;
+	}
+
+	/**
+	 * Removes the entry stored under key.
+	 * @param key - key of the entry to remove
+	 * @return (int) the value that was removed, or NO_VALUE if the key was not present
+	 */
+	public int remove(int key) {
+		int mask = keys.length - 1;
+		int i = slot(key, mask);
+		while (values[i] != NO_VALUE) {
+			if (keys[i] == key) {
+				int old = values[i];
+				closeGap(i, mask);
+				size--;
+				return old;
+			}
+			i = (i + 1) & mask;
+		}
+		return NO_VALUE;
+	}
+
+	/**
+	 * Removes every entry. The table keeps its current capacity.
+	 */
+	public void clear() {
+		for (int i = 0; i < values.length; i++)
+			values[i] = NO_VALUE;
+		size = 0;
+	}
+
+	/**
+	 * Empties slot gap and moves back any later entry of the same probe run that could no longer be
+	 * reached, so lookups never stop early at a hole.
+	 */
+	private void closeGap(int gap, int mask) {
+		int i = gap;
+		while (true) {
+			i = (i + 1) & mask;
+			if (values[i] == NO_VALUE)
+				break;
+			int home = slot(keys[i], mask);
+			// Move the entry if its home slot is not between the gap and its current slot (cyclically)
+			boolean reachable = gap <= i ? (gap < home && home <= i) : (gap < home || home <= i);
+			if (!reachable) {
+				keys[gap] = keys[i];
+				values[gap] = values[i];
+				gap = i;
+			}
+		}
+		values[gap] = NO_VALUE;
+	}
+
+	/**
+	 * Rebuilds the table with the given capacity and inserts every entry again.
+	 */
+	private void resize(int capacity) {
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		int[] newKeys = new int[capacity];
+		int[] newValues = newValues(capacity);
+		int mask = capacity - 1;
+		for (int j = 0; j < oldValues.length; j++) {
+			if (oldValues[j] != NO_VALUE) {
+				int i = slot(oldKeys[j], mask);
+				while (newValues[i] != NO_VALUE)
+					i = (i + 1) & mask;
+				newKeys[i] = oldKeys[j];
+				newValues[i] = oldValues[j];
+			}
+		}
+		keys = newKeys;
+		values = newValues;
+	}
+
+	private static int[] newValues(int capacity) {
+		int[] values = new int[capacity];
+		for (int i = 0; i < capacity; i++)
+			values[i] = NO_VALUE;
+		return values;
+	}
+
+	/**
+	 * Home slot of a key. Sequential keys are spread with a multiplicative hash so they don't
+	 * cluster into one long probe run.
+	 */
+	private static int slot(int key, int mask) {
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+}
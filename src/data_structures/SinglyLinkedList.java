@@ -2,7 +2,10 @@ package data_structures;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 
+import interfaces.FilterFunction;
 import interfaces.List;
 
 /**
@@ -73,15 +76,40 @@ public class SinglyLinkedList<E> implements List<E>{
 	
 	// Represent the first node in the list
 	private Node<E> head;
+	// Represent the last node in the list, so appending doesn't have to walk the whole chain
+	private Node<E> tail;
 	// Tracks the current size of the list
 	private int size;
+	/*
+	 * The last node found by position and its position, so a loop that goes through the list by index
+	 * can continue from where it was instead of starting at head every time. cursor is null when
+	 * there is no valid last node.
+	 * 
+	 * Both are kept in one Cursor that is replaced and never changed, so threads calling get at the
+	 * same time on a list nobody is changing each read a node together with its own position.
+	 */
+	private Cursor cursor;
+	
+	/**
+	 * A node and its position, see cursor.
+	 */
+	private class Cursor {
+		private final Node<E> node;
+		private final int index;
+		
+		Cursor(Node<E> node, int index) {
+			this.node = node;
+			this.index = index;
+		}
+	}
 	
 
 	/**
-	 * Creates an empty list. Head starts as null since there is no data yet. Size is 0.
+	 * Creates an empty list. Head and tail start as null since there is no data yet. Size is 0.
 	 */
 	public SinglyLinkedList() {
 		this.head = null;
+		this.tail = null;
 		this.size = 0;
 	}
 	
@@ -100,26 +128,22 @@ public class SinglyLinkedList<E> implements List<E>{
 
 	/**
 	 * Adds a new element to the list. In this case we appends a node with the value obj
-	 * to the end of the chain
+	 * to the end of the chain. Since we keep a reference to the last node this is O(1).
 	 */
 	@Override
 	public void add(E obj) {
 		// Node to be added. Hold element obj.
 		Node<E> newNode = new Node<E>(obj);
 		
-		// If list is empty then the new node is now head.
+		// If list is empty then the new node is now head and tail.
 		if(head == null)
 			head = newNode;
 		else {
-			// Lets search for the last node in the list
-			Node<E> temp = head;
-			while(temp.getNext() != null) {
-				temp = temp.getNext();
-			}
 			// Set the next of the last node to the new node.
-			// We now have a new last node
-			temp.setNext(newNode);
+			tail.setNext(newNode);
 		}
+		// We now have a new last node
+		tail = newNode;
 		this.size++;
 		
 	}
@@ -134,11 +158,20 @@ public class SinglyLinkedList<E> implements List<E>{
 		// Check the index is valid
 		if(index < 0 || index >=size)
 			throw new IndexOutOfBoundsException();
-		// We start at head
+		// We start at head, or at the last node found if it comes before index
 		Node<E> temp = head;
+		int i = 0;
+		Cursor last = cursor;
+		if(last != null && last.index <= index) {
+			temp = last.node;
+			i = last.index;
+		}
 		// Move through the list until we find the node at position index
-		for(int i = 0; i < index; i++)
+		for(; i < index; i++)
 			temp = temp.getNext();
+		// Remember it for the next search
+		if(last == null || last.node != temp)
+			cursor = new Cursor(temp, index);
 		// Return the node
 		return temp;
 	}
@@ -154,6 +187,11 @@ public class SinglyLinkedList<E> implements List<E>{
 		// Check index is valid
 		if(index < 0 || index > size)
 			throw new IndexOutOfBoundsException();
+		// Adding at the end is an append, no need to look for the node before it
+		if(index == size) {
+			add(obj);
+			return;
+		}
 		// Create the node to be added
 		Node<E> newNode = new Node<E>(obj);
 		// If index is 0 that means this element will be the new head node
@@ -163,6 +201,7 @@ public class SinglyLinkedList<E> implements List<E>{
 			newNode.setNext(head);
 			// Make head point to the new node since it is now the first node
 			head = newNode;
+			// The list is not empty here (index < size), so tail stays the same
 		}
 		// If index is any position other than 0
 		else {
@@ -203,9 +242,85 @@ public class SinglyLinkedList<E> implements List<E>{
 			previousNode.setNext(newNode);
 
 		}
+		// The nodes from index on moved one position forward
+		if(cursor != null && cursor.index >= index)
+			cursor = new Cursor(cursor.node, cursor.index + 1);
 		this.size++;
 	}
 
+	/**
+	 * Adds every element of other to the end of the list.
+	 * 
+	 * @param other - (List<E>) the list whose elements we want to add
+	 */
+	@Override
+	public void addAll(List<E> other) {
+		addAll(size, other);
+	}
+	
+	/**
+	 * Adds every element of other starting at position index.
+	 * 
+	 * The new nodes are first linked into a chain of their own, then the whole chain is spliced in with
+	 * two reference changes. So the node before index is only searched for once, not once per element.
+	 * 
+	 * @param index - (int) position where the first element of other will be
+	 * @param other - (List<E>) the list whose elements we want to add
+	 * @throws IndexOutOfBoundsException if index is not between 0 and size.
+	 */
+	@Override
+	public void addAll(int index, List<E> other) {
+		// Check index is valid
+		if(index < 0 || index > size)
+			throw new IndexOutOfBoundsException();
+		// Build the chain of new nodes. Nothing in this list changes yet, so other can be this list.
+		Node<E> first = null;
+		Node<E> last = null;
+		int count = 0;
+		for(E e: other) {
+			Node<E> newNode = new Node<E>(e);
+			if(first == null)
+				first = newNode;
+			else
+				last.setNext(newNode);
+			last = newNode;
+			count++;
+		}
+		if(count == 0)
+			return;
+		// Splice the chain in
+		if(index == 0) {
+			last.setNext(head);
+			head = first;
+		}
+		else {
+			// At the end the node before index is the tail, no need to search for it
+			Node<E> previousNode = index == size ? tail : getNode(index - 1);
+			last.setNext(previousNode.getNext());
+			previousNode.setNext(first);
+		}
+		if(index == size)
+			tail = last;
+		// The nodes from index on moved count positions forward
+		if(cursor != null && cursor.index >= index)
+			cursor = new Cursor(cursor.node, cursor.index + count);
+		this.size += count;
+	}
+	
+	/**
+	 * Does nothing, nodes are created as elements are added.
+	 */
+	@Override
+	public void ensureCapacity(int minCapacity) {
+	}
+	
+	/**
+	 * Does nothing, there is never space reserved beyond the last node.
+	 */
+	@Override
+	public void trimToSize() {
+	}
+
 	/**
 	 * Returns the element at position index
 	 * 
@@ -247,8 +362,10 @@ public class SinglyLinkedList<E> implements List<E>{
 	@Override
 	public boolean remove(int index) {
 		// Check index is valid
-		if(index < 0 || index > size)
+		if(index < 0 || index >= size)
 			throw new IndexOutOfBoundsException();
+		// The node that takes the place of the removed one
+		Node<E> nextNode;
 		// If it's the first node
 		if(index == 0) {
 			// Get the node to be removed
@@ -258,6 +375,10 @@ public class SinglyLinkedList<E> implements List<E>{
 			 * Notice this still works if there is only one node. 
 			 */
 			this.head = this.head.getNext();
+			// If that was the only node the list has no last node anymore
+			if(this.head == null)
+				this.tail = null;
+			nextNode = this.head;
 			// Help gc
 			holdNode.clear();
 		}
@@ -284,9 +405,20 @@ public class SinglyLinkedList<E> implements List<E>{
 			Node<E> nodeToRemove = previousNode.getNext();
 			// Update references
 			previousNode.setNext(nodeToRemove.getNext());
+			// If we removed the last node, the previous node is the new last node
+			if(nodeToRemove == tail)
+				tail = previousNode;
+			nextNode = previousNode.getNext();
 			// Help GC
 			nodeToRemove.clear();
 		}
+		// The nodes after index moved one position back, and the one at index is replaced by the next one
+		if(cursor != null) {
+			if(cursor.index == index)
+				cursor = nextNode == null ? null : new Cursor(nextNode, index);
+			else if(cursor.index > index)
+				cursor = new Cursor(cursor.node, cursor.index - 1);
+		}
 		size--;
 		return true;
 	}
@@ -357,7 +489,9 @@ public class SinglyLinkedList<E> implements List<E>{
 		while(!isEmpty()) remove(0);
 		// Reset values for empty list
 		size = 0;
-		head = null;		
+		head = null;
+		tail = null;
+		cursor = null;
 	}
 
 	/**
@@ -368,37 +502,45 @@ public class SinglyLinkedList<E> implements List<E>{
 	 */
 	@Override
 	public int removeAll(E obj) {
+		return removeIf(e -> e.equals(obj));
+	}
+	
+	/**
+	 * Removes all nodes whose element func returns true for. We go through the chain once,
+	 * unlinking each of those nodes from the node before it.
+	 * 
+	 * @param func - condition of the elements we want to remove
+	 * @return (int) how many nodes were removed
+	 */
+	@Override
+	public int removeIf(FilterFunction<E> func) {
 		// counter
 		int count = 0;
 		// Nodes we need for removing. Reference to the previous node and the current node
 		Node<E> previousNode = null;
 		Node<E> currentNode = head;
 		while(currentNode != null) {
-			if(currentNode.getElement().equals(obj)) {
-				if(currentNode == head) {
-					// currentNode now point to the new head
-					currentNode = currentNode.getNext();
-					// Remove head. !!!This is O(1), why????
-					remove(0);
-					
-					// No need to update previous since there is no node before head
-				}
-				else {
-					// Hold the current node
-					Node<E> holdNode = currentNode;
-					// Update references
-					previousNode.setNext(currentNode.getNext());
-					currentNode = currentNode.getNext();
-					holdNode.clear();
-					// Need to decrease size as we remove a node
-					size--;
-				}
+			// Hold the current node
+			Node<E> holdNode = currentNode;
+			currentNode = currentNode.getNext();
+			if(func.filter(holdNode.getElement())) {
+				// Update references, there is no node before head
+				if(previousNode == null)
+					head = currentNode;
+				else
+					previousNode.setNext(currentNode);
+				holdNode.clear();
 				count++;
 			}
-			else {
-				previousNode = currentNode;
-				currentNode = currentNode.getNext();
-			}
+			else
+				previousNode = holdNode;
+		}
+		if(count > 0) {
+			// The last node kept is the new last node
+			tail = previousNode;
+			// Positions may have changed anywhere in the list
+			cursor = null;
+			size -= count;
 		}
 		return count;
 	}
@@ -422,7 +564,8 @@ public class SinglyLinkedList<E> implements List<E>{
 	}
 
 	/**
-	 * Returns the last position where element obj appears
+	 * Returns the last position where element obj appears. We still have to look at every node,
+	 * since a later node could hold obj and we can't walk the chain backwards.
 	 * 
 	 * @param obj - (E) Element to search for
 	 * @return (int) Position where the element last appears
@@ -452,7 +595,8 @@ public class SinglyLinkedList<E> implements List<E>{
 	public E last() {
 		if(this.isEmpty())
 			throw new NoSuchElementException();
-		return this.get(size-1);
+		// The tail is the last node, no need to walk to it
+		return this.tail.getElement();
 	}
 	/**
 	 * Returns a String version of the SinglyLinkedList. 
@@ -474,6 +618,16 @@ public class SinglyLinkedList<E> implements List<E>{
 		return str;
 	}
 	
+	/**
+	 * Returns a spliterator that knows the size of the list. Nodes can only be reached one after
+	 * the other, so it splits by copying a batch of elements into an array that another thread
+	 * can work on, with batches growing as the list is consumed.
+	 */
+	@Override
+	public Spliterator<E> spliterator() {
+		return Spliterators.spliterator(iterator(), this.size, Spliterator.ORDERED);
+	}
+	
 	/**
 	 * Returns an iterator for this list
 	 */
@@ -0,0 +1,85 @@
+package data_structures;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Table that gives each distinct String a small int code, in the order the Strings are first seen. Values that repeat
+ * a lot, such as genres or authors, can then be stored as codes and compared with ==, and every holder of the same value
+ * shares one String.
+ *
+ * Codes are never removed or reused. Giving codes is synchronized, while reading the String of a code takes no lock.
+ * Codes only mean something within one dictionary, so threads that give many codes at once, such as the chunks of a
+ * parallel load, each use a dictionary of their own and merge them afterwards (see mergeInto) instead of sharing one.
+ */
+public class StringDictionary {
+
+	// Code stored for a null String
+	public static final int NO_CODE = -1;
+
+	private final HashMap<String, Integer> codes = new HashMap<>();
+	// String of each code. A bigger copy replaces it when it fills up, so readers see either copy.
+	private volatile String[] strings = new String[16];
+	private volatile int size;
+
+	/**
+	 * Returns the code of s, giving it the next code if it hasn't been seen before.
+	 * @param s - the String to encode, may be null
+	 * @return (int) its code, or NO_CODE if s is null
+	 */
+	public synchronized int code(String s) {
+		if (s == null)
+			return NO_CODE;
+		Integer code = codes.get(s);
+		if (code != null)
+			return code;
+		int next = size;
+		String[] current = strings;
+		if (next == current.length)
+			current = Arrays.copyOf(current, current.length * 2);
+		current[next] = s;
+		strings = current;
+		codes.put(s, next);
+		size = next + 1;
+		return next;
+	}
+
+	/**
+	 * Returns the code of s without giving it one.
+	 * @param s - the String to look for
+	 * @return (int) its code, or NO_CODE if s is null or has no code
+	 */
+	public synchronized int find(String s) {
+		Integer code = s == null ? null : codes.get(s);
+		return code == null ? NO_CODE : code;
+	}
+
+	/**
+	 * Gives every String of this dictionary a code in another dictionary, in the order of this one's codes.
+	 * @param other - the dictionary to merge into
+	 * @return (int[]) the code in other of each code of this dictionary
+	 */
+	public int[] mergeInto(StringDictionary other) {
+		int[] codes = new int[size];
+		for (int code = 0; code < codes.length; code++)
+			codes[code] = other.code(strings[code]);
+		return codes;
+	}
+
+	/**
+	 * Returns the String of a code.
+	 * @param code - a code given by this dictionary, or NO_CODE
+	 * @return (String) the String, or null for NO_CODE
+	 */
+	public String get(int code) {
+		return code == NO_CODE ? null : strings[code];
+	}
+
+	/**
+	 * Returns how many codes have been given.
+	 * @return (int) number of distinct Strings
+	 */
+	public int size() {
+		return size;
+	}
+}
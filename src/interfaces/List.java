@@ -1,5 +1,8 @@
 package interfaces;
 
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * Interface that describes the behavior of a List.
  * 
@@ -37,6 +40,34 @@ public interface List<E> extends Iterable<E> {
 	 */
 	public void add(int index, E obj);
 	
+	/**
+	 * Adds every element of other to the end of the List, in the order they have in other.
+	 * other is not changed.
+	 * @param other - the List whose elements we wish to add
+	 */
+	public void addAll(List<E> other);
+	
+	/**
+	 * Adds every element of other starting at the position given by index, in the order they have in other.
+	 * The elements from index on end up after them. other is not changed.
+	 * @param index - position where the first element of other will be
+	 * @param other - the List whose elements we wish to add
+	 * @throws IndexOutOfBoundsException if the index is not valid
+	 */
+	public void addAll(int index, List<E> other);
+	
+	/**
+	 * Makes room for at least minCapacity elements, so adding up to that many doesn't need to grow the List again.
+	 * Lists that don't reserve space ahead of time do nothing.
+	 * @param minCapacity - how many elements the List should fit
+	 */
+	public void ensureCapacity(int minCapacity);
+	
+	/**
+	 * Frees any space reserved beyond the current size. Lists that don't reserve space ahead of time do nothing.
+	 */
+	public void trimToSize();
+	
 	/**
 	 * Returns the value at the given position
 	 * @param index - position of the value we want
@@ -88,6 +119,13 @@ public interface List<E> extends Iterable<E> {
 	 */
 	public int removeAll(E obj);
 	
+	/**
+	 * Removes every element for which func returns true, keeping the others in their order.
+	 * @param func - the condition of the elements we want to remove
+	 * @return (int) number of entries that were removed.
+	 */
+	public int removeIf(FilterFunction<E> func);
+	
 	/**
 	 * Returns the position where an instance of obj first appears.
 	 * @param obj - obj we want to search for
@@ -113,4 +151,21 @@ public interface List<E> extends Iterable<E> {
 	 */
 	public E last();
 	
+	/**
+	 * Returns a sequential Stream of the elements in the List, in order.
+	 * @return (Stream<E>) stream over the List
+	 */
+	public default Stream<E> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+	
+	/**
+	 * Returns a Stream of the elements in the List that may run on several threads. The spliterator of the List
+	 * decides how the elements are split between threads.
+	 * @return (Stream<E>) parallel stream over the List
+	 */
+	public default Stream<E> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+	
 }
@@ -0,0 +1,208 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class writes the report file in the background. A request returns a future at once. The report is rendered and
+ * encoded on a pool thread and the bytes are written with an AsynchronousFileChannel, so no thread waits on the disk.
+ *
+ * Only one write runs at a time. Requests made while a write is running share the next write, which renders the report
+ * when it starts, so any number of requests made in the meantime cost a single render and a single write.
+ *
+ * A caller that can't let another thread read the catalog renders the report itself and hands it over instead (see
+ * request(Rendered)), and only the write happens in the background.
+ */
+class AsyncReportFile {
+	/**
+	 * Produces the contents of the report file.
+	 */
+	interface Renderer {
+		/**
+		 * Renders and encodes the report.
+		 * @return The report, or null if the file already holds it.
+		 * @throws IOException If an error occurs while rendering.
+		 */
+		Rendered render() throws IOException;
+	}
+
+	/**
+	 * A rendered report, with what to do once it is on the file.
+	 */
+	static final class Rendered {
+		private final ByteBuffer bytes;
+		private final Runnable written;
+
+		/**
+		 * @param bytes The bytes of the file.
+		 * @param written Called once the bytes are on the file.
+		 */
+		Rendered(ByteBuffer bytes, Runnable written) {
+			this.bytes = bytes;
+			this.written = written;
+		}
+	}
+
+	private final Path path;
+	private final Renderer renderer;
+	// Future of the write that hasn't started yet, shared by every request made since the running one started
+	private CompletableFuture<Void> queued;
+	// Report handed over for the queued write, or null if the write renders it when it starts
+	private Rendered queuedReport;
+	// Future of the write running now, null if none is
+	private CompletableFuture<Void> running;
+
+	/**
+	 * Creates a writer for a report file.
+	 * @param path The path of the report file.
+	 * @param renderer Produces the contents of the file.
+	 */
+	AsyncReportFile(Path path, Renderer renderer) {
+		this.path = path;
+		this.renderer = renderer;
+	}
+
+	/**
+	 * Asks for the report file to be written with the current state of the catalog.
+	 * @return A future completed once the file holds a report at least as recent as this request.
+	 */
+	synchronized CompletableFuture<Void> request() {
+		if (queued != null) {
+			// Join the write that hasn't started yet, which renders the report when it starts
+			queuedReport = null;
+			return queued;
+		}
+		return queueWrite(null);
+	}
+
+	/**
+	 * Asks for the report file to be written with a report the caller rendered.
+	 * @param report The report, or null if the file already holds it.
+	 * @return A future completed once the file holds this report or a more recent one.
+	 */
+	synchronized CompletableFuture<Void> request(Rendered report) {
+		if (report == null) {
+			// The file holds the report, or will once the writes already asked for are done
+			CompletableFuture<Void> last = queued != null ? queued : running;
+			return last != null ? last : CompletableFuture.completedFuture(null);
+		}
+		if (queued != null) {
+			// Join the write that hasn't started yet, with the most recent report
+			queuedReport = report;
+			return queued;
+		}
+		return queueWrite(report);
+	}
+
+	/**
+	 * Queues a write and starts it if none is running. Called with the lock held.
+	 */
+	private CompletableFuture<Void> queueWrite(Rendered report) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		queued = future;
+		queuedReport = report;
+		if (running == null) {
+			startNext();
+		}
+		return future;
+	}
+
+	/**
+	 * Waits for the write running now and the one queued after it, if any.
+	 */
+	void await() {
+		CompletableFuture<Void> last;
+		synchronized (this) {
+			last = queued != null ? queued : running;
+		}
+		if (last != null) {
+			try {
+				last.join();
+			} catch (RuntimeException e) {
+				// The caller of the request gets the error
+			}
+		}
+	}
+
+	/**
+	 * Starts the queued write. Called with the lock held.
+	 */
+	private void startNext() {
+		CompletableFuture<Void> future = queued;
+		Rendered handed = queuedReport;
+		queued = null;
+		queuedReport = null;
+		running = future;
+		ForkJoinPool.commonPool().execute(() -> {
+			try {
+				Rendered report = handed != null ? handed : renderer.render();
+				if (report == null) {
+					finish(future, null);
+					return;
+				}
+				AsynchronousFileChannel channel = AsynchronousFileChannel.open(path, StandardOpenOption.WRITE,
+						StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+				write(channel, report, 0, future);
+			} catch (IOException | RuntimeException e) {
+				finish(future, e);
+			}
+		});
+	}
+
+	/**
+	 * Writes what is left of bytes at position, and continues from the completion handler until everything is written.
+	 */
+	private void write(AsynchronousFileChannel channel, Rendered report, long position, CompletableFuture<Void> future) {
+		ByteBuffer bytes = report.bytes;
+		if (!bytes.hasRemaining()) {
+			Throwable error = null;
+			try {
+				channel.close();
+				report.written.run();
+			} catch (IOException e) {
+				error = e;
+			}
+			finish(future, error);
+			return;
+		}
+		channel.write(bytes, position, null, new CompletionHandler<Integer, Void>() {
+			@Override
+			public void completed(Integer count, Void attachment) {
+				write(channel, report, position + count, future);
+			}
+
+			@Override
+			public void failed(Throwable error, Void attachment) {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					error.addSuppressed(e);
+				}
+				finish(future, error);
+			}
+		});
+	}
+
+	/**
+	 * Completes a write and starts the next one if requests came in while it ran.
+	 */
+	private void finish(CompletableFuture<Void> future, Throwable error) {
+		synchronized (this) {
+			running = null;
+			if (queued != null) {
+				startNext();
+			}
+		}
+		if (error == null) {
+			future.complete(null);
+		} else {
+			future.completeExceptionally(error);
+		}
+	}
+}
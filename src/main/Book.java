@@ -1,17 +1,63 @@
 package main;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import data_structures.StringDictionary;
  /**
  * This class implements a book with a unique identification (ID), title, author, genre, when it was last checked out, and whether or not it is checked out currently.
+ * 
+ * Whether the book is checked out and the date it was last checked out are packed into a single word (the epoch day shifted
+ * left by one, with the lowest bit set when the book is checked out). The word is updated with compare-and-set, so a reader
+ * never sees one half of a change without the other, and two threads checking out the same book can't both succeed.
+ * 
+ * The last fee calculated is remembered together with the state word and the day it was for. Asking again for the same
+ * day returns it without recalculating, and any checkout or return changes the state word, which makes it stale.
+ * 
+ * A catalog gives the author and genre codes in its own dictionaries (see encode) and keeps the dictionary's String, so
+ * every book of the same author or genre in a catalog shares one String and genres can be compared by code. Setting the
+ * author or genre directly clears its code.
+ * 
+ * A columnar catalog hands out BookView instead, a subclass that reads and updates a row of BookColumns.
+ * 
+ * A catalog checks books out and returns them itself, so it knows what changed. The public methods that change the
+ * checkout state of a book count each change instead (see directChanges), so a catalog can tell that some book changed
+ * behind its back and catch up.
  */
 public class Book {
+	// Day fees are calculated for
+	static final LocalDate FEE_DATE = LocalDate.of(2023, 9, 15);
+	// A book can be kept this many days before fees start, then it owes the base fee plus the daily fee per extra day
+	static final int LOAN_DAYS = 31;
+	static final float BASE_FEE = 10f;
+	static final float DAILY_FEE = 1.5f;
+	// Epoch day stored when the book has no last checkout date
+	private static final long NO_DATE = Long.MIN_VALUE >> 1;
+	static final long CHECKED_OUT = 1L;
+	// Changes made to the checkout state of any book through its public methods
+	private static final AtomicLong DIRECT_CHANGES = new AtomicLong();
+	private static final VarHandle STATE;
+	static {
+		try {
+			STATE = MethodHandles.lookup().findVarHandle(Book.class, "state", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+	
 	private int id;
 	private String title;
 	private String author;
 	private String genre;
-	private LocalDate lastCheckOut;
-	private boolean checkedOut;
+	// Codes of the author and genre in the dictionaries of the catalog holding the book, see encode
+	private int authorCode = StringDictionary.NO_CODE;
+	private int genreCode = StringDictionary.NO_CODE;
+	// Last checkout date and checked out flag, see the class comment
+	private volatile long state = NO_DATE << 1;
+	// Last fee calculated, with the state and the day it was calculated for
+	private volatile FeeMemo feeMemo;
 	
 	 /**
      * gets ID of a book.
@@ -65,6 +111,7 @@ public class Book {
      */
 	public void setAuthor(String author) {
 		this.author = author;
+		this.authorCode = StringDictionary.NO_CODE;
 	}
 	
 	 /**
@@ -83,6 +130,50 @@ public class Book {
      */
 	public void setGenre(String genre) {
 		this.genre = genre;
+		this.genreCode = StringDictionary.NO_CODE;
+	}
+	
+	 /**
+     * Gets the code of the genre of a book in the genre dictionary of its catalog.
+     *
+     * @return Code of the genre, or StringDictionary.NO_CODE if it has none or it was set after the book was encoded.
+     */
+	int getGenreCode() {
+		return genreCode;
+	}
+	
+	 /**
+     * Gives the author and genre their codes in a catalog's dictionaries, and keeps the dictionaries' Strings instead of
+     * the book's own.
+     *
+     * @param authors The author dictionary of the catalog.
+     * @param genres The genre dictionary of the catalog.
+     */
+	void encode(StringDictionary authors, StringDictionary genres) {
+		authorCode = authors.code(author);
+		author = authors.get(authorCode);
+		genreCode = genres.code(genre);
+		genre = genres.get(genreCode);
+	}
+	
+	 /**
+     * Moves a book encoded with one pair of dictionaries to another, such as from the dictionaries of a load chunk to
+     * the catalog's, without looking its Strings up again.
+     *
+     * @param authorCodes The code in authors of each code of the dictionary the book was encoded with.
+     * @param authors The author dictionary to move to.
+     * @param genreCodes The code in genres of each code of the dictionary the book was encoded with.
+     * @param genres The genre dictionary to move to.
+     */
+	void recode(int[] authorCodes, StringDictionary authors, int[] genreCodes, StringDictionary genres) {
+		if (authorCode != StringDictionary.NO_CODE) {
+			authorCode = authorCodes[authorCode];
+			author = authors.get(authorCode);
+		}
+		if (genreCode != StringDictionary.NO_CODE) {
+			genreCode = genreCodes[genreCode];
+			genre = genres.get(genreCode);
+		}
 	}
 	
 	 /**
@@ -91,7 +182,7 @@ public class Book {
      * @return Last checkout date of book.
      */
 	public LocalDate getLastCheckOut() {
-		return lastCheckOut;
+		return lastCheckOutOf(state());
 	}
 	
 	 /**
@@ -100,7 +191,12 @@ public class Book {
      * @param lastCheckOut Last checkout date for the book.
      */
 	public void setLastCheckOut(LocalDate lastCheckOut) {
-		this.lastCheckOut = lastCheckOut;
+		long day = lastCheckOut == null ? NO_DATE : lastCheckOut.toEpochDay();
+		long current;
+		do {
+			current = state();
+		} while (!casState(current, (day << 1) | (current & CHECKED_OUT)));
+		DIRECT_CHANGES.incrementAndGet();
 	}
 	
 	 /**
@@ -109,7 +205,7 @@ public class Book {
      * @return True if the book is checked out, False if the book is not checked out.
      */
 	public boolean isCheckedOut() {
-		return checkedOut;
+		return (state() & CHECKED_OUT) != 0;
 	}
 	
 	 /**
@@ -118,7 +214,83 @@ public class Book {
      * @param checkedOut Set checkout status for the book.
      */
 	public void setCheckedOut(boolean checkedOut) {
-		this.checkedOut = checkedOut;
+		long current;
+		do {
+			current = state();
+		} while (!casState(current, checkedOut ? current | CHECKED_OUT : current & ~CHECKED_OUT));
+		DIRECT_CHANGES.incrementAndGet();
+	}
+	
+	 /**
+     * Sets the last checkout date and the checkout status of a book that no catalog holds yet, such as one being loaded.
+     * Unlike the setters, the change is not counted as a direct change.
+     *
+     * @param lastCheckOut Last checkout date for the book, or null if there is none.
+     * @param checkedOut Checkout status for the book.
+     */
+	void initState(LocalDate lastCheckOut, boolean checkedOut) {
+		long current;
+		do {
+			current = state();
+		} while (!casState(current, packState(lastCheckOut, checkedOut)));
+	}
+	
+	 /**
+     * Checks out the book if it is available, setting the checkout date in the same atomic step.
+     * If several threads try at once, exactly one of them succeeds. A catalog isn't told about the checkout, use
+     * LibraryCatalog.checkOutBook for a book in a catalog.
+     *
+     * @param epochDay Day of the checkout, as returned by LocalDate.toEpochDay().
+     * @return True if the book was checked out, False if it was already checked out.
+     */
+	public boolean checkOut(long epochDay) {
+		if (!tryCheckOut(epochDay)) {
+			return false;
+		}
+		DIRECT_CHANGES.incrementAndGet();
+		return true;
+	}
+	
+	 /**
+     * Same as checkOut, for the catalog holding the book. The change is not counted as a direct change.
+     */
+	boolean tryCheckOut(long epochDay) {
+		long current = state();
+		while ((current & CHECKED_OUT) == 0) {
+			if (casState(current, (epochDay << 1) | CHECKED_OUT)) {
+				return true;
+			}
+			current = state();
+		}
+		return false;
+	}
+	
+	 /**
+     * Returns the book if it is checked out, clearing the checkout date in the same atomic step. A catalog isn't told
+     * about the return, use LibraryCatalog.returnBook for a book in a catalog.
+     *
+     * @return True if the book was returned, False if it wasn't checked out.
+     */
+	public boolean checkIn() {
+		if (!tryCheckIn()) {
+			return false;
+		}
+		DIRECT_CHANGES.incrementAndGet();
+		return true;
+	}
+	
+	 /**
+     * Same as checkIn, for the catalog holding the book. The change is not counted as a direct change.
+     */
+	boolean tryCheckIn() {
+		long current = state();
+		while ((current & CHECKED_OUT) != 0) {
+			if (casState(current, NO_DATE << 1)) {
+				return true;
+			}
+			current = state();
+		}
+		return false;
 	}
 	
 	 /**
@@ -135,6 +307,8 @@ public class Book {
 		 * 
 		 * Both the title and author are in uppercase.
 		 */
+		String title = getTitle();
+		String author = getAuthor();
 		if (title != null && author != null) {
 			return title.trim().toUpperCase() + " BY " + author.trim().toUpperCase();
 		} else {
@@ -143,22 +317,140 @@ public class Book {
 	}
 	
 	 /**
-     * Calculates late fees for a book.
+     * Calculates late fees for a book as of September 15, 2023.
+     * The day is fixed, so it disagrees with the reports of a catalog that has a clock. For those, use
+     * calculateFees(catalog.getFeeDate().toEpochDay()).
      *
      * @return Late fees for the book.
      */
 	public float calculateFees() {
+		return calculateFees(FEE_DATE.toEpochDay());
+	}
+	
+	 /**
+     * Calculates late fees for a book as of a given day.
+     *
+     * @param asOfDay The day fees are calculated for, as returned by LocalDate.toEpochDay().
+     * @return Late fees for the book.
+     */
+	public float calculateFees(long asOfDay) {
 		/*
 		 * fee (if applicable) = base fee + 1.5 per additional day
 		 */
-		LocalDate currentDate = LocalDate.of(2023,9,15);
-		if (checkedOut && lastCheckOut != null) {
-			long daysCheckedOut = ChronoUnit.DAYS.between(lastCheckOut,currentDate);
-			if(daysCheckedOut >= 31) {
-				return 10f+((daysCheckedOut-31)*1.5f);
-			} else {
-				return 0;
+		// Read the state once so the flag and the date belong to the same checkout
+		long current = state();
+		FeeMemo memo = feeMemo;
+		if (memo != null && memo.state == current && memo.asOfDay == asOfDay) {
+			return memo.fees;
+		}
+		float fees = feesOf(current, asOfDay);
+		feeMemo = new FeeMemo(current, asOfDay, fees);
+		return fees;
+	}
+	
+	 /**
+     * Calculates the late fees of a state word as of a given day.
+     *
+     * @param state A state word, see getState.
+     * @param asOfDay The day fees are calculated for, as returned by LocalDate.toEpochDay().
+     * @return Late fees for the book.
+     */
+	static float feesOf(long state, long asOfDay) {
+		long lastDay = state >> 1;
+		if ((state & CHECKED_OUT) != 0 && lastDay != NO_DATE) {
+			long daysCheckedOut = asOfDay - lastDay;
+			if(daysCheckedOut >= LOAN_DAYS) {
+				return BASE_FEE+((daysCheckedOut-LOAN_DAYS)*DAILY_FEE);
 			}
-		} return 0;
+		}
+		return 0;
+	}
+	
+	 /**
+     * Gets the day the book was last checked out, if it is checked out now.
+     *
+     * @return The epoch day of the checkout, or Long.MIN_VALUE if the book is not checked out or has no date.
+     */
+	long getCheckedOutDay() {
+		long current = state();
+		long lastDay = current >> 1;
+		return (current & CHECKED_OUT) != 0 && lastDay != NO_DATE ? lastDay : Long.MIN_VALUE;
+	}
+	
+	 /**
+     * Counts the changes made to the checkout state of any book through its public methods rather than by the catalog
+     * holding it. A catalog that saw the count move knows its figures may be out of date.
+     *
+     * @return The number of direct changes so far.
+     */
+	static long directChanges() {
+		return DIRECT_CHANGES.get();
+	}
+	
+	 /**
+     * Gets the state word, see the class comment.
+     *
+     * @return The last checkout day shifted left by one, with the lowest bit set if the book is checked out.
+     */
+	long getState() {
+		return state();
+	}
+	
+	 /**
+     * Packs a last checkout date and a checked out flag into a state word.
+     *
+     * @param lastCheckOut The last checkout date, or null if there is none.
+     * @param checkedOut Whether the book is checked out.
+     * @return The state word.
+     */
+	static long packState(LocalDate lastCheckOut, boolean checkedOut) {
+		long day = lastCheckOut == null ? NO_DATE : lastCheckOut.toEpochDay();
+		return (day << 1) | (checkedOut ? CHECKED_OUT : 0);
+	}
+	
+	 /**
+     * Gets the last checkout date held in a state word.
+     *
+     * @param state A state word, see getState.
+     * @return The last checkout date, or null if there is none.
+     */
+	static LocalDate lastCheckOutOf(long state) {
+		long day = state >> 1;
+		return day == NO_DATE ? null : LocalDate.ofEpochDay(day);
+	}
+	
+	 /**
+     * Reads the state word. A view reads it from its row instead.
+     *
+     * @return The state word.
+     */
+	long state() {
+		return state;
+	}
+	
+	 /**
+     * Sets the state word if it still holds the expected one. A view updates its row instead.
+     *
+     * @param expect The state word the book should hold.
+     * @param update The new state word.
+     * @return True if the book held expect and now holds update.
+     */
+	boolean casState(long expect, long update) {
+		return STATE.compareAndSet(this, expect, update);
+	}
+	
+	/**
+	 * A fee together with the state word and the day it was calculated for.
+	 */
+	private static class FeeMemo {
+		private final long state;
+		private final long asOfDay;
+		private final float fees;
+		
+		FeeMemo(long state, long asOfDay, float fees) {
+			this.state = state;
+			this.asOfDay = asOfDay;
+			this.fees = fees;
+		}
 	}
 }
@@ -0,0 +1,192 @@
+package main;
+
+import java.io.IOException;
+import java.util.BitSet;
+
+import data_structures.StringDictionary;
+import interfaces.List;
+
+/**
+ * This class holds the books of a columnar catalog as columns instead of one object per book. Each field of a book is
+ * one entry of its own column, and a book is a row number. Books handed out are views (see BookView) that read and update
+ * the columns, so a scan over one field, such as which books are checked out, walks one column in order instead of
+ * visiting a Book, a LocalDate and several Strings scattered over the heap.
+ *
+ * Rows are appended and never move. A removed book leaves its row marked as deleted, so a view stays valid for as long
+ * as its book is in the catalog. The state column holds the same words as a Book (see Book) and is updated with
+ * compare-and-set. Appending and deleting rows must be done by one thread at a time, as the catalog does under its write
+ * lock.
+ *
+ * Genres are coded in the genre dictionary of the catalog the columns belong to, the same one its heap books use.
+ */
+abstract class BookColumns {
+	// Rows of removed books
+	private final BitSet deleted = new BitSet();
+	private int deletedCount;
+	// Genre dictionary of the catalog
+	final StringDictionary genres;
+
+	/**
+	 * Creates empty columns.
+	 * @param genres The genre dictionary of the catalog.
+	 */
+	BookColumns(StringDictionary genres) {
+		this.genres = genres;
+	}
+
+	/**
+	 * Gets how many rows there are, deleted ones included.
+	 * @return The number of rows.
+	 */
+	abstract int rowCount();
+
+	abstract int id(int row);
+
+	abstract void setId(int row, int id);
+
+	abstract String title(int row);
+
+	abstract void setTitle(int row, String title);
+
+	abstract String author(int row);
+
+	abstract void setAuthor(int row, String author);
+
+	abstract String genre(int row);
+
+	abstract void setGenre(int row, String genre);
+
+	/**
+	 * Gets the code of the genre of a row in the genre dictionary.
+	 * @param row The row.
+	 * @return The code of the genre, or StringDictionary.NO_CODE if it has none.
+	 */
+	abstract int genreCode(int row);
+
+	/**
+	 * Gets the state word of a row.
+	 * @param row The row.
+	 * @return The last checkout day shifted left by one, with the lowest bit set if the book is checked out.
+	 */
+	abstract long getState(int row);
+
+	/**
+	 * Sets the state word of a row if it still holds the expected one.
+	 * @param row The row.
+	 * @param expect The state word the row should hold.
+	 * @param update The new state word.
+	 * @return True if the row held expect and now holds update.
+	 */
+	abstract boolean compareAndSetState(int row, long expect, long update);
+
+	/**
+	 * Adds a row at the end.
+	 * @return The number of the new row.
+	 */
+	abstract int appendRow(int id, String title, String author, String genre, long state);
+
+	/**
+	 * Adds a book at the end.
+	 * @param id The ID of the book.
+	 * @param title The title of the book.
+	 * @param author The author of the book.
+	 * @param genre The genre of the book.
+	 * @param state The state word of the book, see Book.packState.
+	 * @return A view of the new row.
+	 */
+	Book append(int id, String title, String author, String genre, long state) {
+		return view(appendRow(id, title, author, genre, state));
+	}
+
+	/**
+	 * Adds a copy of a book at the end.
+	 * @param book The book to copy.
+	 * @return A view of the new row.
+	 */
+	Book append(Book book) {
+		return append(book.getId(), book.getTitle(), book.getAuthor(), book.getGenre(), book.getState());
+	}
+
+	/**
+	 * Gets a view of a row.
+	 * @param row The row.
+	 * @return A book that reads and updates the row.
+	 */
+	Book view(int row) {
+		return new BookView(this, row);
+	}
+
+	/**
+	 * Checks if a row belongs to a removed book.
+	 * @param row The row.
+	 * @return True if the row is deleted.
+	 */
+	boolean isDeleted(int row) {
+		return deleted.get(row);
+	}
+
+	/**
+	 * Marks a row as deleted. Deleting a row twice does nothing.
+	 * @param row The row.
+	 */
+	void delete(int row) {
+		if (!deleted.get(row)) {
+			deleted.set(row);
+			deletedCount++;
+		}
+	}
+
+	/**
+	 * Gets how many rows are not deleted.
+	 * @return The number of books.
+	 */
+	int liveCount() {
+		return rowCount() - deletedCount;
+	}
+
+	/**
+	 * Gets the first row that is not deleted, starting at from.
+	 * @param from The first row to look at.
+	 * @return The row, or -1 if there is none.
+	 */
+	int nextLive(int from) {
+		int row = deletedCount == 0 ? from : deleted.nextClearBit(from);
+		return row < rowCount() ? row : -1;
+	}
+
+	/**
+	 * Gets the first checked out row that is not deleted, starting at from. Only the state column is read.
+	 * @param from The first row to look at.
+	 * @return The row, or -1 if there is none.
+	 */
+	int nextCheckedOut(int from) {
+		int rows = rowCount();
+		for (int row = from; row < rows; row++) {
+			if ((getState(row) & Book.CHECKED_OUT) != 0 && !isDeleted(row)) {
+				return row;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Writes what the columns hold outside the heap to disk. Columns on the heap have nothing to write.
+	 */
+	void force() {
+	}
+
+	/**
+	 * Releases what the columns hold outside the heap. Columns on the heap have nothing to release.
+	 * @throws IOException If an error occurs while releasing them.
+	 */
+	void close() throws IOException {
+	}
+
+	/**
+	 * Gets the books as a list of views in row order.
+	 * @return A list backed by the columns.
+	 */
+	List<Book> asList() {
+		return new ColumnarBookList(this);
+	}
+}
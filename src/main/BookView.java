@@ -0,0 +1,118 @@
+package main;
+
+/**
+ * A book that is a view of a row of BookColumns, handed out by a columnar catalog. It holds no fields of its own: every
+ * getter, setter and checkout reads or updates the columns, and two views of the same row are equal.
+ *
+ * Views are made when a book is asked for and are not kept by the catalog, which indexes rows instead. The last fee
+ * calculated is not remembered, since a view usually lives for one lookup.
+ */
+class BookView extends Book {
+	private final BookColumns columns;
+	private final int row;
+
+	/**
+	 * Creates a view of a row of columns.
+	 * @param columns The columns holding the fields of the book.
+	 * @param row The row of the book in the columns.
+	 */
+	BookView(BookColumns columns, int row) {
+		this.columns = columns;
+		this.row = row;
+	}
+
+	@Override
+	public int getId() {
+		return columns.id(row);
+	}
+
+	@Override
+	public void setId(int id) {
+		columns.setId(row, id);
+	}
+
+	@Override
+	public String getTitle() {
+		return columns.title(row);
+	}
+
+	@Override
+	public void setTitle(String title) {
+		columns.setTitle(row, title);
+	}
+
+	@Override
+	public String getAuthor() {
+		return columns.author(row);
+	}
+
+	@Override
+	public void setAuthor(String author) {
+		columns.setAuthor(row, author);
+	}
+
+	@Override
+	public String getGenre() {
+		return columns.genre(row);
+	}
+
+	@Override
+	public void setGenre(String genre) {
+		columns.setGenre(row, genre);
+	}
+
+	@Override
+	int getGenreCode() {
+		return columns.genreCode(row);
+	}
+
+	@Override
+	public float calculateFees(long asOfDay) {
+		return feesOf(state(), asOfDay);
+	}
+
+	@Override
+	long state() {
+		return columns.getState(row);
+	}
+
+	@Override
+	boolean casState(long expect, long update) {
+		return columns.compareAndSetState(row, expect, update);
+	}
+
+	/**
+	 * A view is equal to another view of the same row of the same columns.
+	 * @param obj The object to compare with.
+	 * @return True if both are views of the same row.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof BookView)) {
+			return false;
+		}
+		BookView other = (BookView) obj;
+		return columns == other.columns && row == other.row;
+	}
+
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(columns) * 31 + row;
+	}
+
+	/**
+	 * Gets the columns this book is a view of.
+	 * @return The columns.
+	 */
+	BookColumns getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Gets the row of the columns this book is a view of.
+	 * @return The row.
+	 */
+	int getRow() {
+		return row;
+	}
+}
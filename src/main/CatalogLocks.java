@@ -0,0 +1,164 @@
+package main;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * This class holds the locks of a catalog in concurrent mode.
+ *
+ * The structure lock protects the books list and the ID index. Adding and removing books take it for writing. Reports
+ * and searches take it for reading, so they run side by side and only wait for adds and removes. Looking up a single book
+ * by ID uses an optimistic read, which takes no lock at all unless a book was added or removed during the lookup.
+ *
+ * Checkouts and returns change a book with compare-and-set (see Book), so readers see its state without a lock. Each
+ * change also takes one of a fixed set of stripe locks chosen by the book ID, which removing the book takes as well, so a
+ * book is never changed once it is removed and the records of the same book reach the log in the order the changes
+ * happened. A stripe is always taken before the structure lock.
+ *
+ * A catalog that is not in concurrent mode uses locks that do nothing.
+ */
+class CatalogLocks {
+	private static final Lock NO_LOCK = new NoLock();
+	private static final CatalogLocks NONE = new CatalogLocks(null, null);
+
+	private final StampedLock structure;
+	private final Lock[] stripes;
+
+	private CatalogLocks(StampedLock structure, Lock[] stripes) {
+		this.structure = structure;
+		this.stripes = stripes;
+	}
+
+	/**
+	 * Creates the locks of a concurrent catalog with enough stripes to keep every core busy.
+	 * @return The locks.
+	 */
+	static CatalogLocks striped() {
+		int count = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 16 - 1) << 1;
+		Lock[] stripes = new Lock[count];
+		for (int i = 0; i < count; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+		return new CatalogLocks(new StampedLock(), stripes);
+	}
+
+	/**
+	 * Gets the locks of a catalog that is only used from one thread.
+	 * @return Locks that do nothing.
+	 */
+	static CatalogLocks none() {
+		return NONE;
+	}
+
+	/**
+	 * Gets the lock taken to read the books list and the index.
+	 * @return The read side of the structure lock.
+	 */
+	Lock read() {
+		return structure == null ? NO_LOCK : structure.asReadLock();
+	}
+
+	/**
+	 * Gets the lock taken to add or remove books.
+	 * @return The write side of the structure lock.
+	 */
+	Lock write() {
+		return structure == null ? NO_LOCK : structure.asWriteLock();
+	}
+
+	/**
+	 * Starts an optimistic read of the books list or the index.
+	 * @return A stamp for validate(), or 0 if a book is being added or removed right now.
+	 */
+	long tryOptimisticRead() {
+		return structure == null ? 1 : structure.tryOptimisticRead();
+	}
+
+	/**
+	 * Checks that no book was added or removed since the optimistic read started.
+	 * @param stamp The stamp returned by tryOptimisticRead().
+	 * @return True if what was read is consistent.
+	 */
+	boolean validate(long stamp) {
+		return structure == null || structure.validate(stamp);
+	}
+
+	/**
+	 * Gets the lock protecting the state of the book with the given ID.
+	 * @param id The ID of the book.
+	 * @return The stripe lock of the book.
+	 */
+	Lock stripe(int id) {
+		if (stripes == null) {
+			return NO_LOCK;
+		}
+		int h = id * 0x9E3779B9;
+		return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+	}
+
+	/**
+	 * Takes every stripe lock, so no book is checked out or returned until unlockStripes. The stripes are taken in
+	 * order, so two threads doing this don't deadlock.
+	 */
+	void lockStripes() {
+		if (stripes != null) {
+			for (Lock stripe : stripes) {
+				stripe.lock();
+			}
+		}
+	}
+
+	/**
+	 * Releases the stripe locks taken by lockStripes.
+	 */
+	void unlockStripes() {
+		if (stripes != null) {
+			for (int i = stripes.length - 1; i >= 0; i--) {
+				stripes[i].unlock();
+			}
+		}
+	}
+
+	/**
+	 * Gets how many stripe locks there are, so other structures of the catalog can be split the same way.
+	 * @return The number of stripes, a power of two, or 1 if the catalog is not in concurrent mode.
+	 */
+	int stripeCount() {
+		return stripes == null ? 1 : stripes.length;
+	}
+
+	/**
+	 * Lock used when the catalog is not in concurrent mode. Every method returns at once.
+	 */
+	private static class NoLock implements Lock {
+		@Override
+		public void lock() {
+		}
+
+		@Override
+		public void lockInterruptibly() {
+		}
+
+		@Override
+		public boolean tryLock() {
+			return true;
+		}
+
+		@Override
+		public boolean tryLock(long time, TimeUnit unit) {
+			return true;
+		}
+
+		@Override
+		public void unlock() {
+		}
+
+		@Override
+		public Condition newCondition() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,307 @@
+package main;
+
+import java.time.Clock;
+
+/**
+ * This class holds the settings used to build a LibraryCatalog: where the data files are and how they are loaded.
+ * The defaults match the original behavior, reading data/catalog.csv and data/user.csv on a single thread.
+ */
+public class CatalogOptions {
+	private String catalogPath = "data/catalog.csv";
+	private String userPath = "data/user.csv";
+	private boolean parallelLoad;
+	private int loadThreads;
+	private String snapshotPath;
+	private String logPath;
+	private boolean concurrent;
+	private Clock clock;
+	private boolean parallelReport;
+	private int reportThreads;
+	private boolean reportCache;
+	private boolean parallelSearch;
+	private boolean columnar;
+	private String mappedPath;
+	private int mappedSegmentRows;
+	private long mappedStringSegment;
+
+	/**
+	 * Gets the path of the books file.
+	 * @return Path of the books file.
+	 */
+	public String getCatalogPath() {
+		return catalogPath;
+	}
+
+	/**
+	 * Sets the path of the books file.
+	 * @param catalogPath Path of the books file.
+	 */
+	public void setCatalogPath(String catalogPath) {
+		this.catalogPath = catalogPath;
+	}
+
+	/**
+	 * Gets the path of the users file.
+	 * @return Path of the users file.
+	 */
+	public String getUserPath() {
+		return userPath;
+	}
+
+	/**
+	 * Sets the path of the users file.
+	 * @param userPath Path of the users file.
+	 */
+	public void setUserPath(String userPath) {
+		this.userPath = userPath;
+	}
+
+	/**
+	 * Checks if the books file is split into chunks and parsed on several threads.
+	 * @return True if the books are loaded in parallel.
+	 */
+	public boolean isParallelLoad() {
+		return parallelLoad;
+	}
+
+	/**
+	 * Sets whether the books file is split into chunks and parsed on several threads. Chunks are cut at line breaks, so
+	 * a file with a line break inside a quoted field is read on one thread after all.
+	 * @param parallelLoad True to load the books in parallel.
+	 */
+	public void setParallelLoad(boolean parallelLoad) {
+		this.parallelLoad = parallelLoad;
+	}
+
+	/**
+	 * Gets how many threads a parallel load uses. 0 means the common fork-join pool.
+	 * @return Number of threads for a parallel load.
+	 */
+	public int getLoadThreads() {
+		return loadThreads;
+	}
+
+	/**
+	 * Sets how many threads a parallel load uses. 0 means the common fork-join pool.
+	 * @param loadThreads Number of threads for a parallel load.
+	 */
+	public void setLoadThreads(int loadThreads) {
+		this.loadThreads = loadThreads;
+	}
+
+	/**
+	 * Gets the path of the binary snapshot restored on startup, or null if no snapshot is used.
+	 * @return Path of the snapshot.
+	 */
+	public String getSnapshotPath() {
+		return snapshotPath;
+	}
+
+	/**
+	 * Sets the path of a binary snapshot to restore on startup instead of parsing the CSV files. When the snapshot is
+	 * missing, damaged or older than the CSV files, the CSV files are read and a fresh snapshot is written.
+	 * @param snapshotPath Path of the snapshot, or null to always read the CSV files.
+	 */
+	public void setSnapshotPath(String snapshotPath) {
+		this.snapshotPath = snapshotPath;
+	}
+
+	/**
+	 * Gets the path of the mutation log, or null if changes are only kept in memory.
+	 * @return Path of the mutation log.
+	 */
+	public String getLogPath() {
+		return logPath;
+	}
+
+	/**
+	 * Sets the path of a mutation log. Every book added, removed, checked out or returned is written to it before the
+	 * call returns, and the log is replayed on startup on top of the snapshot or the CSV files. Saving a snapshot to the
+	 * snapshot path empties the log. A change is made in memory before it is written, see LibraryCatalog for what
+	 * happens when the log can't be written.
+	 * @param logPath Path of the mutation log, or null to keep changes only in memory.
+	 */
+	public void setLogPath(String logPath) {
+		this.logPath = logPath;
+	}
+
+	/**
+	 * Checks if the catalog can be used from several threads at once.
+	 * @return True if the catalog is in concurrent mode.
+	 */
+	public boolean isConcurrent() {
+		return concurrent;
+	}
+
+	/**
+	 * Sets whether the catalog can be used from several threads at once. Checkouts and returns then lock only a stripe
+	 * chosen by the book ID, and reports and searches don't block them.
+	 * @param concurrent True to put the catalog in concurrent mode.
+	 */
+	public void setConcurrent(boolean concurrent) {
+		this.concurrent = concurrent;
+	}
+
+	/**
+	 * Gets the clock that dates checkouts and fees, or null for the original behavior.
+	 * @return The clock of the catalog.
+	 */
+	public Clock getClock() {
+		return clock;
+	}
+
+	/**
+	 * Sets the clock of the catalog. Checkouts are dated with its current day, and reports calculate fees as of it.
+	 * Without a clock, checkouts use the system date and fees are calculated as of September 15, 2023.
+	 * @param clock The clock, or null for the original behavior.
+	 */
+	public void setClock(Clock clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * Checks if the checked out books and the fees of a report are worked out on several threads.
+	 * @return True if reports are generated in parallel.
+	 */
+	public boolean isParallelReport() {
+		return parallelReport;
+	}
+
+	/**
+	 * Sets whether the checked out books and the fees of a report are worked out on several threads. The report is
+	 * the same either way.
+	 * @param parallelReport True to generate reports in parallel.
+	 */
+	public void setParallelReport(boolean parallelReport) {
+		this.parallelReport = parallelReport;
+	}
+
+	/**
+	 * Gets how many threads a parallel report uses. 0 means the common fork-join pool.
+	 * @return Number of threads for a parallel report.
+	 */
+	public int getReportThreads() {
+		return reportThreads;
+	}
+
+	/**
+	 * Sets how many threads a parallel report uses. 0 means the common fork-join pool. A catalog makes its pool of
+	 * threads for its first parallel report and keeps it until it is closed, so changes after that are not seen.
+	 * @param reportThreads Number of threads for a parallel report.
+	 */
+	public void setReportThreads(int reportThreads) {
+		this.reportThreads = reportThreads;
+	}
+
+	/**
+	 * Checks if the catalog keeps the sections of the last report to reuse them.
+	 * @return True if reports are cached.
+	 */
+	public boolean isReportCache() {
+		return reportCache;
+	}
+
+	/**
+	 * Sets whether the catalog keeps the sections of the last report in memory. A section is then only worked out again
+	 * when a book it depends on was added, removed, checked out or returned through the catalog, and the report file is
+	 * not written again when nothing changed since the last time.
+	 * @param reportCache True to cache reports.
+	 */
+	public void setReportCache(boolean reportCache) {
+		this.reportCache = reportCache;
+	}
+
+	/**
+	 * Checks if searches and title counts go through the books or users on several threads.
+	 * @return True if searches run in parallel.
+	 */
+	public boolean isParallelSearch() {
+		return parallelSearch;
+	}
+
+	/**
+	 * Sets whether searches and title counts go through the books or users on several threads, using parallel streams
+	 * of the catalog lists. Results keep the order of the lists. The filters given to searches must then be safe to
+	 * call from several threads at once.
+	 * @param parallelSearch True to search in parallel.
+	 */
+	public void setParallelSearch(boolean parallelSearch) {
+		this.parallelSearch = parallelSearch;
+	}
+
+	/**
+	 * Checks if the books are kept in columns instead of one object per book.
+	 * @return True if the catalog is columnar.
+	 */
+	public boolean isColumnar() {
+		return columnar;
+	}
+
+	/**
+	 * Sets whether the books are kept in columns of primitive arrays instead of one object per book. The books the
+	 * catalog hands out are then views of their rows, and scans such as the checked out part of the report read only the
+	 * column they need. Books can then only be added at the end of the catalog list and not replaced in it.
+	 * @param columnar True to keep the books in columns.
+	 */
+	public void setColumnar(boolean columnar) {
+		this.columnar = columnar;
+	}
+
+	/**
+	 * Gets the path of the memory-mapped file the books are kept in, or null if they are kept on the heap.
+	 * @return Path of the mapped books file.
+	 */
+	public String getMappedPath() {
+		return mappedPath;
+	}
+
+	/**
+	 * Sets the path of a memory-mapped file to keep the books in, for catalogs whose book fields don't fit in the heap.
+	 * The strings of the books go to a second file next to it, ending in .strings. The catalog is then columnar (see
+	 * setColumnar) with its columns in the files. While the books file is unchanged the mapped files are reopened instead
+	 * of reading it, and changes made to the catalog are kept in them. A snapshot (see setSnapshotPath) then only holds
+	 * the users.
+	 *
+	 * Only the books are mapped. The users, the ID index (two ints per book) and the genre counts stay on the heap, and
+	 * are rebuilt on every start by reading the ID, genre and state of every row. Null keeps the books on the heap.
+	 * @param mappedPath Path of the mapped books file, or null.
+	 */
+	public void setMappedPath(String mappedPath) {
+		this.mappedPath = mappedPath;
+	}
+
+	/**
+	 * Gets how many books each segment of a new mapped records file holds, or 0 for the default.
+	 * @return Books per segment.
+	 */
+	public int getMappedSegmentRows() {
+		return mappedSegmentRows;
+	}
+
+	/**
+	 * Sets how many books each segment of a new mapped records file holds (see setMappedPath). The default, 0, maps
+	 * about 1.3 GB at a time. Files that already exist keep the segment sizes they were made with.
+	 * @param mappedSegmentRows Books per segment, or 0 for the default.
+	 */
+	public void setMappedSegmentRows(int mappedSegmentRows) {
+		this.mappedSegmentRows = mappedSegmentRows;
+	}
+
+	/**
+	 * Gets how many bytes each segment of a new mapped strings file holds, or 0 for the default.
+	 * @return Bytes per segment.
+	 */
+	public long getMappedStringSegment() {
+		return mappedStringSegment;
+	}
+
+	/**
+	 * Sets how many bytes each segment of a new mapped strings file holds (see setMappedPath). The default, 0, maps 1 GB
+	 * at a time. No string crosses the end of a segment, so a book whose title or author doesn't fit in one segment
+	 * can't be added. Files that already exist keep the segment sizes they were made with.
+	 * @param mappedStringSegment Bytes per segment, or 0 for the default.
+	 */
+	public void setMappedStringSegment(long mappedStringSegment) {
+		this.mappedStringSegment = mappedStringSegment;
+	}
+}
@@ -0,0 +1,334 @@
+package main;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+import data_structures.ArrayList;
+import data_structures.IntArrayList;
+import interfaces.List;
+
+/**
+ * This class saves the books and users of a catalog to a compact binary file and restores them from it, so startup
+ * doesn't have to parse the CSV files again.
+ *
+ * Every String is stored once in a string table and referenced by its position. The books and users are stored as
+ * fixed-width columns (one int array per field, dates as epoch days). The file starts with the size and modification
+ * time of the CSV files it was made from, so a snapshot is ignored once those files change, and ends with a CRC32 of
+ * everything before it, so a damaged snapshot is ignored too.
+ */
+class CatalogSnapshot {
+	private static final int MAGIC = 0x4C435331; // "LCS1"
+	private static final int VERSION = 2;
+	// Stored instead of an epoch day when a book has no last checkout date
+	private static final int NO_DATE = Integer.MIN_VALUE;
+
+	private List<Book> books;
+	private int nextId;
+	// User columns, turned into Users once the books are indexed
+	private int[] userIds;
+	private String[] userNames;
+	private int[] heldCounts;
+	private int[] heldIds;
+
+	/**
+	 * Encodes a snapshot of the catalog in memory, so the caller can hold its lock only while the catalog is read and
+	 * write the file afterwards. The state word of each book is read once, so its last checkout date and checked out flag
+	 * always agree even if the book is checked out or returned meanwhile.
+	 * @param options The options the catalog was loaded with, used to fingerprint the CSV files.
+	 * @param books The books of the catalog, or null if they are kept in mapped files (see CatalogOptions.setMappedPath)
+	 * and only the users go in the snapshot.
+	 * @param users The users of the catalog.
+	 * @param nextId The ID the next added book will get.
+	 * @return The contents of the snapshot file.
+	 */
+	static byte[] encode(CatalogOptions options, List<Book> books, List<User> users, int nextId) {
+		boolean hasBooks = books != null;
+		if (!hasBooks) {
+			books = new ArrayList<>();
+		}
+		// Build the string table
+		HashMap<String, Integer> codes = new HashMap<>();
+		List<String> strings = new ArrayList<>();
+		for (Book book : books) {
+			code(book.getTitle(), codes, strings);
+			code(book.getAuthor(), codes, strings);
+			code(book.getGenre(), codes, strings);
+		}
+		for (User user : users) {
+			code(user.getName(), codes, strings);
+		}
+		long[] states = new long[books.size()];
+		int count = 0;
+		for (Book book : books)
+			states[count++] = book.getState();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + books.size() * 24);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(bytes, 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeFingerprint(out, options.getCatalogPath());
+			writeFingerprint(out, options.getUserPath());
+			out.writeInt(nextId);
+			out.writeBoolean(hasBooks);
+
+			out.writeInt(strings.size());
+			for (String s : strings) {
+				byte[] encoded = s.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(encoded.length);
+				out.write(encoded);
+			}
+
+			out.writeInt(count);
+			for (Book book : books)
+				out.writeInt(book.getId());
+			for (Book book : books)
+				out.writeInt(code(book.getTitle(), codes, strings));
+			for (Book book : books)
+				out.writeInt(code(book.getAuthor(), codes, strings));
+			for (Book book : books)
+				out.writeInt(code(book.getGenre(), codes, strings));
+			for (int i = 0; i < count; i++) {
+				LocalDate lastCheckOut = Book.lastCheckOutOf(states[i]);
+				out.writeInt(lastCheckOut == null ? NO_DATE : (int) lastCheckOut.toEpochDay());
+			}
+			for (int i = 0; i < count; i++)
+				out.writeByte((states[i] & Book.CHECKED_OUT) != 0 ? 1 : 0);
+
+			out.writeInt(users.size());
+			int totalHeld = 0;
+			for (User user : users)
+				out.writeInt(user.getId());
+			for (User user : users)
+				out.writeInt(code(user.getName(), codes, strings));
+			for (User user : users) {
+				out.writeInt(user.getCheckedOutIds().size());
+				totalHeld += user.getCheckedOutIds().size();
+			}
+			out.writeInt(totalHeld);
+			for (User user : users) {
+				IntArrayList ids = user.getCheckedOutIds();
+				for (int i = 0; i < ids.size(); i++)
+					out.writeInt(ids.get(i));
+			}
+		} catch (IOException e) {
+			// Writing to a byte array doesn't fail
+			throw new UncheckedIOException(e);
+		}
+		// The checksum covers everything before it
+		byte[] body = bytes.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(body);
+		byte[] contents = Arrays.copyOf(body, body.length + 8);
+		ByteBuffer.wrap(contents).putLong(body.length, crc.getValue());
+		return contents;
+	}
+
+	/**
+	 * Writes an encoded snapshot. The file is written and synced next to path and then moved over it, so a crash halfway
+	 * through never leaves a half written snapshot behind.
+	 * @param path Where to write the snapshot.
+	 * @param contents The snapshot, from encode.
+	 * @throws IOException If an error occurs while writing the file.
+	 */
+	static void write(String path, byte[] contents) throws IOException {
+		Path target = Paths.get(path);
+		Path temp = Paths.get(path + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.wrap(contents);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			// The log is cut once this returns, so the snapshot has to be on disk first
+			channel.force(true);
+		}
+		Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads a snapshot if it exists, is intact and was made from the current CSV files.
+	 * @param path Where the snapshot is.
+	 * @param options The options of the catalog being loaded.
+	 * @return The snapshot, or null if the CSV files have to be read instead.
+	 */
+	static CatalogSnapshot load(String path, CatalogOptions options) {
+		File file = new File(path);
+		if (!file.isFile()) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.limit() < 8) {
+				return null;
+			}
+			// Check the checksum before trusting anything in the file
+			CRC32 crc = new CRC32();
+			ByteBuffer body = buffer.duplicate();
+			body.limit(buffer.limit() - 8);
+			crc.update(body);
+			if (crc.getValue() != buffer.getLong(buffer.limit() - 8)) {
+				return null;
+			}
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+					|| !matchesFingerprint(buffer, options.getCatalogPath())
+					|| !matchesFingerprint(buffer, options.getUserPath())) {
+				return null;
+			}
+			CatalogSnapshot snapshot = new CatalogSnapshot();
+			snapshot.read(buffer);
+			return snapshot;
+		} catch (IOException | RuntimeException e) {
+			// A snapshot that can't be read is treated as missing
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the books stored in the snapshot.
+	 * @return List of books in the order they were saved, or null if the books were kept in mapped files.
+	 */
+	List<Book> getBooks() {
+		return books;
+	}
+
+	/**
+	 * Gets the ID the next added book will get.
+	 * @return The next book ID.
+	 */
+	int getNextId() {
+		return nextId;
+	}
+
+	/**
+	 * Builds the users stored in the snapshot. Their books are looked up by ID when needed.
+	 * @param bookLookup Finds a book of the catalog by ID.
+	 * @return List of users in the order they were saved.
+	 */
+	List<User> getUsers(IntFunction<Book> bookLookup) {
+		List<User> users = new ArrayList<>(Math.max(userIds.length, 1));
+		int held = 0;
+		for (int i = 0; i < userIds.length; i++) {
+			IntArrayList checkedOutIds = new IntArrayList(heldCounts[i]);
+			for (int j = 0; j < heldCounts[i]; j++) {
+				checkedOutIds.add(heldIds[held++]);
+			}
+			User user = new User();
+			user.setId(userIds[i]);
+			user.setName(userNames[i]);
+			user.setCheckedOutIds(checkedOutIds, bookLookup);
+			users.add(user);
+		}
+		return users;
+	}
+
+	/**
+	 * Reads the string table and the columns, starting right after the fingerprints.
+	 */
+	private void read(ByteBuffer buffer) {
+		nextId = buffer.getInt();
+		boolean hasBooks = buffer.get() != 0;
+
+		String[] strings = new String[buffer.getInt()];
+		byte[] scratch = new byte[64];
+		for (int i = 0; i < strings.length; i++) {
+			int length = buffer.getInt();
+			if (length > scratch.length) {
+				scratch = new byte[Math.max(length, scratch.length * 2)];
+			}
+			buffer.get(scratch, 0, length);
+			strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+		}
+
+		int bookCount = buffer.getInt();
+		int[] ids = ints(buffer, bookCount);
+		int[] titles = ints(buffer, bookCount);
+		int[] authors = ints(buffer, bookCount);
+		int[] genres = ints(buffer, bookCount);
+		int[] dates = ints(buffer, bookCount);
+		books = new ArrayList<>(Math.max(bookCount, 1));
+		for (int i = 0; i < bookCount; i++) {
+			Book book = new Book();
+			book.setId(ids[i]);
+			book.setTitle(strings[titles[i]]);
+			book.setAuthor(strings[authors[i]]);
+			book.setGenre(strings[genres[i]]);
+			book.initState(dates[i] == NO_DATE ? null : LocalDate.ofEpochDay(dates[i]), buffer.get() != 0);
+			books.add(book);
+		}
+		if (!hasBooks) {
+			books = null;
+		}
+
+		int userCount = buffer.getInt();
+		userIds = ints(buffer, userCount);
+		int[] names = ints(buffer, userCount);
+		userNames = new String[userCount];
+		for (int i = 0; i < userCount; i++) {
+			userNames[i] = strings[names[i]];
+		}
+		heldCounts = ints(buffer, userCount);
+		heldIds = ints(buffer, buffer.getInt());
+	}
+
+	/**
+	 * Reads a column of count ints in one bulk copy.
+	 */
+	private static int[] ints(ByteBuffer buffer, int count) {
+		int[] column = new int[count];
+		buffer.asIntBuffer().get(column);
+		buffer.position(buffer.position() + count * 4);
+		return column;
+	}
+
+	/**
+	 * Gives the position of s in the string table, adding it if it's new. A null String is stored as an empty one.
+	 */
+	private static int code(String s, HashMap<String, Integer> codes, List<String> strings) {
+		if (s == null) {
+			s = "";
+		}
+		Integer code = codes.get(s);
+		if (code == null) {
+			code = strings.size();
+			codes.put(s, code);
+			strings.add(s);
+		}
+		return code;
+	}
+
+	/**
+	 * Writes the size and modification time of a CSV file.
+	 */
+	private static void writeFingerprint(DataOutputStream out, String path) throws IOException {
+		File file = new File(path);
+		out.writeLong(file.length());
+		out.writeLong(file.lastModified());
+	}
+
+	/**
+	 * Checks the size and modification time of a CSV file against the ones stored in the snapshot.
+	 */
+	private static boolean matchesFingerprint(ByteBuffer buffer, String path) {
+		File file = new File(path);
+		long length = buffer.getLong();
+		long lastModified = buffer.getLong();
+		return file.length() == length && file.lastModified() == lastModified;
+	}
+}
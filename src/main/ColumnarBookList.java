@@ -0,0 +1,256 @@
+package main;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+import interfaces.FilterFunction;
+import interfaces.List;
+
+/**
+ * This class shows the books of BookColumns as a list of views, in row order and skipping deleted rows. Adding a book
+ * appends a copy of it to the columns, and removing one deletes its row.
+ *
+ * Rows never move, so a book can't be inserted or replaced at a position. Reaching a position walks past the deleted
+ * rows before it, which costs nothing until a book has been removed.
+ */
+class ColumnarBookList implements List<Book> {
+	private final BookColumns columns;
+
+	/**
+	 * Creates a list backed by columns.
+	 * @param columns The columns holding the books.
+	 */
+	ColumnarBookList(BookColumns columns) {
+		this.columns = columns;
+	}
+
+	@Override
+	public int size() {
+		return columns.liveCount();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Appends a copy of the book to the columns. The book itself is not part of the list afterwards, a view of the new row is.
+	 */
+	@Override
+	public void add(Book obj) {
+		columns.append(obj);
+	}
+
+	/**
+	 * Only allowed at the end, since rows never move.
+	 * @throws UnsupportedOperationException if index is not the size of the list
+	 */
+	@Override
+	public void add(int index, Book obj) {
+		if (index != size()) {
+			throw new UnsupportedOperationException("Books can only be added at the end of a columnar catalog");
+		}
+		add(obj);
+	}
+
+	@Override
+	public void addAll(List<Book> other) {
+		for (Book book : other) {
+			columns.append(book);
+		}
+	}
+
+	/**
+	 * Only allowed at the end, since rows never move.
+	 * @throws UnsupportedOperationException if index is not the size of the list
+	 */
+	@Override
+	public void addAll(int index, List<Book> other) {
+		if (index != size()) {
+			throw new UnsupportedOperationException("Books can only be added at the end of a columnar catalog");
+		}
+		addAll(other);
+	}
+
+	/**
+	 * Does nothing, the columns grow a page at a time.
+	 */
+	@Override
+	public void ensureCapacity(int minCapacity) {
+	}
+
+	/**
+	 * Does nothing, the columns grow a page at a time.
+	 */
+	@Override
+	public void trimToSize() {
+	}
+
+	@Override
+	public Book get(int index) {
+		return columns.view(rowAt(index));
+	}
+
+	/**
+	 * Not supported, since a position always shows the row it started with.
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public Book set(int index, Book obj) {
+		throw new UnsupportedOperationException("Books of a columnar catalog can't be replaced");
+	}
+
+	@Override
+	public boolean remove(int index) {
+		columns.delete(rowAt(index));
+		return true;
+	}
+
+	/**
+	 * Removes a book by deleting the row it is a view of.
+	 */
+	@Override
+	public boolean remove(Book obj) {
+		int row = rowOf(obj);
+		if (row == -1) {
+			return false;
+		}
+		columns.delete(row);
+		return true;
+	}
+
+	@Override
+	public boolean contains(Book obj) {
+		return rowOf(obj) != -1;
+	}
+
+	@Override
+	public void clear() {
+		for (int row = columns.nextLive(0); row != -1; row = columns.nextLive(row + 1)) {
+			columns.delete(row);
+		}
+	}
+
+	@Override
+	public int removeAll(Book obj) {
+		return removeIf(book -> book.equals(obj));
+	}
+
+	@Override
+	public int removeIf(FilterFunction<Book> func) {
+		int count = 0;
+		for (int row = columns.nextLive(0); row != -1; row = columns.nextLive(row + 1)) {
+			if (func.filter(columns.view(row))) {
+				columns.delete(row);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public int firstIndex(Book obj) {
+		int index = 0;
+		for (int row = columns.nextLive(0); row != -1; row = columns.nextLive(row + 1)) {
+			if (columns.view(row).equals(obj)) {
+				return index;
+			}
+			index++;
+		}
+		return -1;
+	}
+
+	@Override
+	public int lastIndex(Book obj) {
+		int index = 0;
+		int last = -1;
+		for (int row = columns.nextLive(0); row != -1; row = columns.nextLive(row + 1)) {
+			if (columns.view(row).equals(obj)) {
+				last = index;
+			}
+			index++;
+		}
+		return last;
+	}
+
+	@Override
+	public Book first() {
+		int row = columns.nextLive(0);
+		if (row == -1) {
+			throw new NoSuchElementException();
+		}
+		return columns.view(row);
+	}
+
+	@Override
+	public Book last() {
+		for (int row = columns.rowCount() - 1; row >= 0; row--) {
+			if (!columns.isDeleted(row)) {
+				return columns.view(row);
+			}
+		}
+		throw new NoSuchElementException();
+	}
+
+	@Override
+	public Iterator<Book> iterator() {
+		return new Iterator<Book>() {
+			private int next = columns.nextLive(0);
+
+			@Override
+			public boolean hasNext() {
+				return next != -1;
+			}
+
+			@Override
+			public Book next() {
+				if (next == -1) {
+					throw new NoSuchElementException();
+				}
+				Book book = columns.view(next);
+				next = columns.nextLive(next + 1);
+				return book;
+			}
+		};
+	}
+
+	@Override
+	public Spliterator<Book> spliterator() {
+		return Spliterators.spliterator(iterator(), size(), Spliterator.ORDERED);
+	}
+
+	/**
+	 * Finds the row at a position, walking past the deleted rows before it.
+	 */
+	private int rowAt(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (columns.liveCount() == columns.rowCount()) {
+			return index;
+		}
+		int row = columns.nextLive(0);
+		for (int i = 0; i < index; i++) {
+			row = columns.nextLive(row + 1);
+		}
+		return row;
+	}
+
+	/**
+	 * Finds the row of a book, or -1 if it is not in the list. Only views of these columns can be in it, since any other
+	 * book is equal only to itself.
+	 */
+	private int rowOf(Book obj) {
+		if (!(obj instanceof BookView)) {
+			return -1;
+		}
+		BookView view = (BookView) obj;
+		if (view.getColumns() != columns || columns.isDeleted(view.getRow())) {
+			return -1;
+		}
+		return view.getRow();
+	}
+}
@@ -0,0 +1,335 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.function.IntConsumer;
+
+/**
+ * This class reads the fields of a CSV file one at a time straight from a ByteBuffer, usually a memory-mapped file.
+ * Numbers, booleans and dates are parsed from the bytes in place, so the only objects created per row are the
+ * String fields themselves. Fields may be enclosed in double quotes so they can contain commas; a quote inside a
+ * quoted field is written twice ("").
+ */
+class CsvCursor {
+	private final ByteBuffer buffer;
+	// Position of the next byte to read and the end of the data
+	private int pos;
+	private final int limit;
+	// Holds the bytes of a String field while it is decoded
+	private byte[] scratch = new byte[64];
+	// Whether a quoted field held a line break, see hasQuotedLineBreak
+	private boolean quotedLineBreak;
+
+	/**
+	 * Creates a cursor over the remaining bytes of buffer.
+	 * @param buffer The CSV data.
+	 */
+	CsvCursor(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.pos = buffer.position();
+		this.limit = buffer.limit();
+	}
+
+	/**
+	 * Maps a file into memory and creates a cursor over it.
+	 * @param path The path of the CSV file.
+	 * @return A cursor positioned at the start of the file.
+	 * @throws IOException If the file can't be opened or is too large to map as a single buffer.
+	 */
+	static CsvCursor open(String path) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File too large to map as a single buffer: " + path);
+			}
+			return new CsvCursor(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+		}
+	}
+
+	/**
+	 * Skips blank lines and tells whether there is another row to read.
+	 * @return True if there is another row, false at the end of the data.
+	 */
+	boolean hasNextRow() {
+		while (pos < limit && isLineBreak(buffer.get(pos))) {
+			pos++;
+		}
+		return pos < limit;
+	}
+
+	/**
+	 * Moves to the start of the next row, ignoring whatever is left of the current one.
+	 */
+	void endRow() {
+		while (pos < limit && buffer.get(pos) != '\n') {
+			pos++;
+		}
+		if (pos < limit) {
+			pos++;
+		}
+	}
+
+	/**
+	 * Reads the next field as an int.
+	 * @return The value of the field.
+	 * @throws NumberFormatException If the field is not a whole number.
+	 */
+	int nextInt() {
+		skipBlanks();
+		int start = pos;
+		boolean negative = pos < limit && buffer.get(pos) == '-';
+		if (negative) {
+			pos++;
+		}
+		// The value is kept negative while it is read, since Integer.MIN_VALUE has no positive counterpart
+		int min = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+		int value = 0;
+		int digits = 0;
+		while (pos < limit && isDigit(buffer.get(pos))) {
+			value = appendDigit(value, buffer.get(pos++), min, start);
+			digits++;
+		}
+		if (digits == 0 || !endField()) {
+			throw new NumberFormatException("Expected a number at byte " + start);
+		}
+		return negative ? value : -value;
+	}
+
+	/**
+	 * Reads the next field as a boolean. Like Boolean.parseBoolean, only "true" (ignoring case) is true.
+	 * @return The value of the field.
+	 */
+	boolean nextBoolean() {
+		skipBlanks();
+		boolean value = pos + 4 <= limit
+				&& (buffer.get(pos) | 0x20) == 't' && (buffer.get(pos + 1) | 0x20) == 'r'
+				&& (buffer.get(pos + 2) | 0x20) == 'u' && (buffer.get(pos + 3) | 0x20) == 'e';
+		if (value) {
+			pos += 4;
+		}
+		skipBlanks();
+		// Anything other than "true" followed by the end of the field is false
+		if (!endField()) {
+			value = false;
+			skipField();
+		}
+		return value;
+	}
+
+	/**
+	 * Reads the next field as an ISO date (yyyy-MM-dd).
+	 * @return The date of the field.
+	 * @throws DateTimeException If the field is not a valid ISO date.
+	 */
+	LocalDate nextDate() {
+		skipBlanks();
+		int start = pos;
+		int year = digits(4);
+		boolean valid = year >= 0 && expect('-');
+		int month = valid ? digits(2) : -1;
+		valid = month >= 0 && expect('-');
+		int day = valid ? digits(2) : -1;
+		if (day < 0 || !endField()) {
+			throw new DateTimeException("Expected a date (yyyy-MM-dd) at byte " + start);
+		}
+		return LocalDate.of(year, month, day);
+	}
+
+	/**
+	 * Reads the next field as a String without surrounding whitespace. Quoted fields keep everything between the quotes.
+	 * @return The text of the field.
+	 */
+	String nextString() {
+		skipBlanks();
+		int length = 0;
+		if (pos < limit && buffer.get(pos) == '"') {
+			pos++;
+			while (pos < limit) {
+				byte b = buffer.get(pos++);
+				if (b == '\n') {
+					quotedLineBreak = true;
+				} else if (b == '"') {
+					// A doubled quote is a quote character, a single one closes the field
+					if (pos < limit && buffer.get(pos) == '"') {
+						pos++;
+					} else {
+						break;
+					}
+				}
+				length = append(length, b);
+			}
+			skipBlanks();
+			if (!endField()) {
+				skipField();
+			}
+		} else {
+			int end = 0;
+			while (pos < limit && !isFieldEnd(buffer.get(pos))) {
+				byte b = buffer.get(pos++);
+				length = append(length, b);
+				if (!isBlank(b)) {
+					end = length;
+				}
+			}
+			endField();
+			length = end;
+		}
+		return new String(scratch, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Tells whether a quoted field read so far held a line break, or ran to the end of the data after one. A reader that
+	 * cut the data at line breaks has then cut a row in two.
+	 * @return True if a quoted field held a line break.
+	 */
+	boolean hasQuotedLineBreak() {
+		return quotedLineBreak;
+	}
+
+	/**
+	 * Reads the next field as a set of IDs like {2 4 6} and gives each ID to action. The braces are optional and the IDs
+	 * may be separated by spaces or commas. An empty field has no IDs.
+	 * @param action What to do with each ID.
+	 * @throws NumberFormatException If the set contains something other than numbers.
+	 */
+	void nextIdSet(IntConsumer action) {
+		skipBlanks();
+		boolean braced = pos < limit && buffer.get(pos) == '{';
+		if (braced) {
+			pos++;
+		}
+		while (pos < limit) {
+			byte b = buffer.get(pos);
+			if (isDigit(b)) {
+				int start = pos;
+				int id = 0;
+				while (pos < limit && isDigit(buffer.get(pos))) {
+					id = appendDigit(id, buffer.get(pos++), -Integer.MAX_VALUE, start);
+				}
+				action.accept(-id);
+			} else if (b == '}' && braced) {
+				pos++;
+				braced = false;
+			} else if (isLineBreak(b) || (b == ',' && !braced)) {
+				break;
+			} else if (isBlank(b) || b == ',') {
+				pos++;
+			} else {
+				throw new NumberFormatException("Expected a book ID at byte " + pos);
+			}
+		}
+		endField();
+	}
+
+	/**
+	 * Adds a digit to a number that is being read, in the same way as Integer.parseInt.
+	 * @param value The digits read so far, negated.
+	 * @param digit The next digit.
+	 * @param min The smallest value allowed.
+	 * @param start Where the number starts, for the error message.
+	 * @return The number with the digit added, negated.
+	 * @throws NumberFormatException If the number goes past min.
+	 */
+	private static int appendDigit(int value, byte digit, int min, int start) {
+		int d = digit - '0';
+		if (value < min / 10 || value * 10 < min + d) {
+			throw new NumberFormatException("Number out of range at byte " + start);
+		}
+		return value * 10 - d;
+	}
+
+	/**
+	 * Reads count digits as a number.
+	 * @return The number, or -1 if there weren't count digits.
+	 */
+	private int digits(int count) {
+		int value = 0;
+		for (int i = 0; i < count; i++) {
+			if (pos >= limit || !isDigit(buffer.get(pos))) {
+				return -1;
+			}
+			value = value * 10 + (buffer.get(pos++) - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * Consumes the byte c if it is the next one.
+	 * @return True if c was consumed.
+	 */
+	private boolean expect(char c) {
+		if (pos < limit && buffer.get(pos) == c) {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Adds a byte to the scratch array, growing it if needed.
+	 * @return The new length of the text in the scratch array.
+	 */
+	private int append(int length, byte b) {
+		if (length == scratch.length) {
+			byte[] bigger = new byte[scratch.length * 2];
+			System.arraycopy(scratch, 0, bigger, 0, length);
+			scratch = bigger;
+		}
+		scratch[length] = b;
+		return length + 1;
+	}
+
+	/**
+	 * Skips trailing blanks and the comma after a field. The line break of the last field is left for endRow().
+	 * @return True if the cursor was at the end of the field, false if something else was left in it.
+	 */
+	private boolean endField() {
+		skipBlanks();
+		if (pos >= limit || isLineBreak(buffer.get(pos))) {
+			return true;
+		}
+		if (buffer.get(pos) == ',') {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Skips to the end of the current field.
+	 */
+	private void skipField() {
+		while (pos < limit && !isFieldEnd(buffer.get(pos))) {
+			pos++;
+		}
+		endField();
+	}
+
+	private void skipBlanks() {
+		while (pos < limit && isBlank(buffer.get(pos))) {
+			pos++;
+		}
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	private static boolean isBlank(byte b) {
+		return b == ' ' || b == '\t';
+	}
+
+	private static boolean isLineBreak(byte b) {
+		return b == '\n' || b == '\r';
+	}
+
+	private static boolean isFieldEnd(byte b) {
+		return b == ',' || isLineBreak(b);
+	}
+}
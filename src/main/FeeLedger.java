@@ -0,0 +1,276 @@
+package main;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import data_structures.ArrayList;
+import data_structures.IntArrayList;
+import data_structures.IntHashMap;
+import interfaces.List;
+
+/**
+ * This class keeps the late fees of every user without recomputing them from scratch for each report.
+ *
+ * For each user it stores how many of their books are checked out, the sum of the checkout days and the earliest and
+ * latest checkout day. A book checked out on day c owes 10 + 1.5(d - c - 31) on day d once it is at least 31 days late,
+ * so when all of a user's books are late the total is n(1.5d - 36.5) - 1.5(sum of c): a closed form of the day. Only a
+ * user with some books late and some not yet late needs a walk over their own books.
+ *
+ * The figures of a user are refreshed only when one of their books is checked out or returned, and the users holding
+ * any checked out book are tracked in user order, so the fee section of a report only looks at those users. Books and
+ * users changed through their own setters are not seen here, the catalog builds a new ledger when that happens.
+ *
+ * A checkout or return only locks the account of the user holding the book. The set of users holding books is a bitmap
+ * updated with compare-and-set, so checkouts of different users' books never wait for each other.
+ */
+class FeeLedger {
+	// Accounts per task when fees are calculated in parallel
+	private static final int CHUNK = 4096;
+
+	// A user's figures. Guarded by the account itself.
+	private static class Account {
+		private final User user;
+		private final int position;
+		private int held;
+		private long sumDays;
+		private long firstDay;
+		private long lastDay;
+
+		Account(User user, int position) {
+			this.user = user;
+			this.position = position;
+		}
+	}
+
+	private final Account[] accounts;
+	// Accounts of the users holding each book, keyed by book ID (a book is normally held by one user)
+	private final IntHashMap<Account[]> holders;
+	// Positions of the users that hold at least one checked out book, 64 per word
+	private final AtomicLongArray borrowers;
+
+	/**
+	 * Builds the ledger from the users and the books they hold.
+	 * @param users The users of the catalog.
+	 */
+	FeeLedger(List<User> users) {
+		accounts = new Account[users.size()];
+		borrowers = new AtomicLongArray((accounts.length + 63) >>> 6);
+		holders = new IntHashMap<>(users.size());
+		int position = 0;
+		for (User user : users) {
+			Account account = new Account(user, position);
+			accounts[position++] = account;
+			IntArrayList ids = user.getCheckedOutIds();
+			for (int i = 0; i < ids.size(); i++) {
+				int bookId = ids.get(i);
+				Account[] current = holders.get(bookId);
+				if (current == null) {
+					holders.put(bookId, new Account[] { account });
+				} else if (current[current.length - 1] != account) {
+					Account[] more = new Account[current.length + 1];
+					System.arraycopy(current, 0, more, 0, current.length);
+					more[current.length] = account;
+					holders.put(bookId, more);
+				}
+			}
+			refresh(account);
+		}
+	}
+
+	/**
+	 * Refreshes the figures of the users holding a book after it was checked out or returned.
+	 * @param bookId The ID of the book.
+	 */
+	void bookChanged(int bookId) {
+		Account[] accounts = holders.get(bookId);
+		if (accounts != null) {
+			for (Account account : accounts) {
+				refresh(account);
+			}
+		}
+	}
+
+	/**
+	 * Gets how many users the ledger was built from.
+	 * @return The number of accounts.
+	 */
+	int size() {
+		return accounts.length;
+	}
+
+	/**
+	 * Checks if any user holds a book.
+	 * @param bookId The ID of the book.
+	 * @return True if the ID is in some user's checked out books.
+	 */
+	boolean isHeld(int bookId) {
+		return holders.get(bookId) != null;
+	}
+
+	/**
+	 * Calculates the fees of the users that owe money and gives them to action in user order.
+	 * @param asOfDay The day fees are calculated for, as an epoch day.
+	 * @param action What to do with each user and their fees.
+	 * @return The total of all the fees.
+	 */
+	float forEachDebtor(long asOfDay, Debtor action) throws IOException {
+		float total = 0;
+		int position = nextBorrower(0);
+		while (position >= 0) {
+			Account account = accounts[position];
+			float fees = fees(account, asOfDay);
+			if (fees > 0) {
+				action.owes(account.user, fees);
+				total += fees;
+			}
+			position = nextBorrower(position + 1);
+		}
+		return total;
+	}
+
+	/**
+	 * Same as forEachDebtor(asOfDay, action), but the fees are calculated on the threads of pool. The users are still
+	 * given to action in user order and the total is added up in that order, so the result is exactly the same.
+	 * @param asOfDay The day fees are calculated for, as an epoch day.
+	 * @param action What to do with each user and their fees.
+	 * @param pool The pool that calculates the fees.
+	 * @return The total of all the fees.
+	 */
+	float forEachDebtor(long asOfDay, Debtor action, ForkJoinPool pool) throws IOException {
+		int[] positions = borrowerPositions();
+		float[] fees = new float[positions.length];
+		List<ForkJoinTask<?>> tasks = new ArrayList<>(positions.length / CHUNK + 1);
+		for (int start = 0; start < positions.length; start += CHUNK) {
+			int from = start;
+			int to = Math.min(positions.length, start + CHUNK);
+			tasks.add(pool.submit(() -> {
+				for (int i = from; i < to; i++) {
+					fees[i] = fees(accounts[positions[i]], asOfDay);
+				}
+			}));
+		}
+		for (ForkJoinTask<?> task : tasks) {
+			task.join();
+		}
+		float total = 0;
+		for (int i = 0; i < positions.length; i++) {
+			if (fees[i] > 0) {
+				action.owes(accounts[positions[i]].user, fees[i]);
+				total += fees[i];
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Receives each user that owes fees.
+	 */
+	@FunctionalInterface
+	interface Debtor {
+		void owes(User user, float fees) throws IOException;
+	}
+
+	/**
+	 * Calculates the fees of one account on a day.
+	 */
+	private static float fees(Account account, long asOfDay) {
+		long lateBefore = asOfDay - Book.LOAN_DAYS;
+		synchronized (account) {
+			if (account.held == 0 || account.firstDay > lateBefore) {
+				// Nothing is late yet
+				return 0;
+			}
+			if (account.lastDay <= lateBefore) {
+				// Everything is late, use the closed form
+				double perBook = Book.BASE_FEE + Book.DAILY_FEE * (asOfDay - Book.LOAN_DAYS);
+				return (float) (account.held * perBook - Book.DAILY_FEE * account.sumDays);
+			}
+		}
+		// Some books are late and some aren't, add up the late ones
+		float fees = 0;
+		for (int i = 0; i < account.user.getCheckedOutCount(); i++) {
+			Book book = account.user.getCheckedOutBook(i);
+			if (book != null) {
+				fees += book.calculateFees(asOfDay);
+			}
+		}
+		return fees;
+	}
+
+	/**
+	 * Recomputes the figures of an account from the books of its user.
+	 */
+	private void refresh(Account account) {
+		// Recompute under the account's lock so two refreshes can't store their results in the wrong order
+		synchronized (account) {
+			int held = 0;
+			long sumDays = 0;
+			long firstDay = Long.MAX_VALUE;
+			long lastDay = Long.MIN_VALUE;
+			for (int i = 0; i < account.user.getCheckedOutCount(); i++) {
+				Book book = account.user.getCheckedOutBook(i);
+				long day = book == null ? Long.MIN_VALUE : book.getCheckedOutDay();
+				if (day != Long.MIN_VALUE) {
+					held++;
+					sumDays += day;
+					firstDay = Math.min(firstDay, day);
+					lastDay = Math.max(lastDay, day);
+				}
+			}
+			account.held = held;
+			account.sumDays = sumDays;
+			account.firstDay = firstDay;
+			account.lastDay = lastDay;
+			setBorrower(account.position, held > 0);
+		}
+	}
+
+	/**
+	 * Gets the positions of the users holding a book, in user order.
+	 */
+	private int[] borrowerPositions() {
+		int[] positions = new int[16];
+		int count = 0;
+		for (int position = nextBorrower(0); position >= 0; position = nextBorrower(position + 1)) {
+			if (count == positions.length) {
+				positions = Arrays.copyOf(positions, count * 2);
+			}
+			positions[count++] = position;
+		}
+		return Arrays.copyOf(positions, count);
+	}
+
+	/**
+	 * Sets or clears the bit of a user in borrowers.
+	 */
+	private void setBorrower(int position, boolean borrowing) {
+		long bit = 1L << position;
+		if (borrowing) {
+			borrowers.getAndAccumulate(position >>> 6, bit, (word, b) -> word | b);
+		} else {
+			borrowers.getAndAccumulate(position >>> 6, bit, (word, b) -> word & ~b);
+		}
+	}
+
+	/**
+	 * Finds the first user holding a book at or after a position.
+	 * @return The position, or -1 if there is none.
+	 */
+	private int nextBorrower(int from) {
+		int index = from >>> 6;
+		if (index >= borrowers.length()) {
+			return -1;
+		}
+		long word = borrowers.get(index) & (-1L << from);
+		while (word == 0) {
+			if (++index == borrowers.length()) {
+				return -1;
+			}
+			word = borrowers.get(index);
+		}
+		return (index << 6) + Long.numberOfTrailingZeros(word);
+	}
+}
@@ -0,0 +1,124 @@
+package main;
+
+import java.util.Arrays;
+
+import data_structures.ArrayList;
+import data_structures.StringDictionary;
+import interfaces.List;
+
+/**
+ * This class keeps how many books of each genre the catalog has. Genres are compared ignoring case and keep the spelling
+ * of the first book seen with them. The catalog updates the tally as books are loaded, added and removed, so reading a
+ * count costs a walk over the genres instead of a scan of every book.
+ *
+ * Books are counted by the code of their genre in the genre dictionary of the catalog. The first time a code is seen it is matched to a genre
+ * ignoring case, and after that counting a book is an array lookup with no String compared.
+ */
+class GenreTally {
+	private final StringDictionary dictionary;
+	// Genre names in the order they were first seen, and the count of each one at the same position
+	private final List<String> names = new ArrayList<>();
+	private int[] counts = new int[8];
+	// Position of the genre of each code plus one, at the code plus one so a book with no genre (NO_CODE) is at 0
+	private int[] positions = new int[16];
+
+	/**
+	 * Creates an empty tally.
+	 * @param dictionary The genre dictionary of the catalog, which gives the codes books are counted by.
+	 */
+	GenreTally(StringDictionary dictionary) {
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * Counts one more book of the genre.
+	 * @param genreCode The code of the genre of the book in the genre dictionary.
+	 */
+	void add(int genreCode) {
+		// Found first, as finding a new genre can replace the counts array
+		int i = positionOf(genreCode);
+		counts[i]++;
+	}
+
+	/**
+	 * Counts one less book of the genre.
+	 * @param genreCode The code of the genre of the book in the genre dictionary.
+	 */
+	void remove(int genreCode) {
+		int i = positionOf(genreCode);
+		if (counts[i] > 0) {
+			counts[i]--;
+		}
+	}
+
+	/**
+	 * Gets how many books have the genre.
+	 * @param genre The genre, in any case.
+	 * @return The amount of books of that genre.
+	 */
+	int count(String genre) {
+		int i = indexOf(genre);
+		return i == -1 ? 0 : counts[i];
+	}
+
+	/**
+	 * Gets how many different genres have been seen.
+	 * @return The number of genres.
+	 */
+	int size() {
+		return names.size();
+	}
+
+	/**
+	 * Gets the genre at a position, in the order genres were first seen.
+	 * @param index Position of the genre.
+	 * @return The name of the genre.
+	 */
+	String name(int index) {
+		return names.get(index);
+	}
+
+	/**
+	 * Gets the amount of books of the genre at a position.
+	 * @param index Position of the genre.
+	 * @return The amount of books of that genre.
+	 */
+	int count(int index) {
+		return counts[index];
+	}
+
+	private int indexOf(String genre) {
+		String key = genre == null ? "" : genre;
+		for (int i = 0; i < names.size(); i++) {
+			if (names.get(i).equalsIgnoreCase(key)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the position of the genre of a code, matching the code to a genre the first time it is seen and adding the
+	 * genre if it is new.
+	 */
+	private int positionOf(int genreCode) {
+		int key = genreCode + 1;
+		if (key < positions.length && positions[key] != 0) {
+			return positions[key] - 1;
+		}
+		String genre = dictionary.get(genreCode);
+		int i = indexOf(genre);
+		if (i == -1) {
+			i = names.size();
+			names.add(genre == null ? "" : genre);
+			if (i == counts.length) {
+				counts = Arrays.copyOf(counts, counts.length * 2);
+			}
+		}
+		if (key >= positions.length) {
+			positions = Arrays.copyOf(positions, Math.max(key + 1, positions.length * 2));
+		}
+		positions[key] = i + 1;
+		return i;
+	}
+}
@@ -0,0 +1,172 @@
+package main;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+import data_structures.StringDictionary;
+import interfaces.List;
+
+/**
+ * Book columns held in primitive arrays on the heap. IDs and states are int and long arrays, and authors and genres are
+ * stored as their codes in the author and genre dictionaries of the catalog.
+ *
+ * Each column is split into pages of a fixed number of rows. Growing adds pages and never copies one, so a checkout
+ * that updates a state word with compare-and-set can't be lost to a copy made by a book being added at the same time.
+ */
+class HeapBookColumns extends BookColumns {
+	// Rows per page
+	private static final int PAGE_BITS = 12;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	private static final VarHandle STATES = MethodHandles.arrayElementVarHandle(long[].class);
+
+	private int[][] ids = new int[4][];
+	private int[][] genreCodes = new int[4][];
+	private long[][] states = new long[4][];
+	private String[][] titles = new String[4][];
+	private int[][] authorCodes = new int[4][];
+	private volatile int rows;
+	private final StringDictionary authors;
+
+	/**
+	 * Creates empty columns.
+	 * @param authors The author dictionary of the catalog.
+	 * @param genres The genre dictionary of the catalog.
+	 */
+	HeapBookColumns(StringDictionary authors, StringDictionary genres) {
+		super(genres);
+		this.authors = authors;
+	}
+
+	/**
+	 * Copies books into new columns, in the order of the list.
+	 * @param books The books to copy.
+	 * @param authors The author dictionary of the catalog.
+	 * @param genres The genre dictionary of the catalog.
+	 * @return The columns.
+	 */
+	static HeapBookColumns of(List<Book> books, StringDictionary authors, StringDictionary genres) {
+		HeapBookColumns columns = new HeapBookColumns(authors, genres);
+		for (Book book : books) {
+			columns.appendRow(book.getId(), book.getTitle(), book.getAuthor(), book.getGenre(), book.getState());
+		}
+		return columns;
+	}
+
+	@Override
+	int rowCount() {
+		return rows;
+	}
+
+	@Override
+	int id(int row) {
+		return ids[row >>> PAGE_BITS][row & PAGE_MASK];
+	}
+
+	@Override
+	void setId(int row, int id) {
+		ids[row >>> PAGE_BITS][row & PAGE_MASK] = id;
+	}
+
+	@Override
+	String title(int row) {
+		return titles[row >>> PAGE_BITS][row & PAGE_MASK];
+	}
+
+	@Override
+	void setTitle(int row, String title) {
+		titles[row >>> PAGE_BITS][row & PAGE_MASK] = title;
+	}
+
+	@Override
+	String author(int row) {
+		return authors.get(authorCodes[row >>> PAGE_BITS][row & PAGE_MASK]);
+	}
+
+	@Override
+	void setAuthor(int row, String author) {
+		authorCodes[row >>> PAGE_BITS][row & PAGE_MASK] = authors.code(author);
+	}
+
+	@Override
+	String genre(int row) {
+		return genres.get(genreCodes[row >>> PAGE_BITS][row & PAGE_MASK]);
+	}
+
+	@Override
+	void setGenre(int row, String genre) {
+		genreCodes[row >>> PAGE_BITS][row & PAGE_MASK] = genres.code(genre);
+	}
+
+	@Override
+	int genreCode(int row) {
+		return genreCodes[row >>> PAGE_BITS][row & PAGE_MASK];
+	}
+
+	@Override
+	long getState(int row) {
+		return (long) STATES.getVolatile(states[row >>> PAGE_BITS], row & PAGE_MASK);
+	}
+
+	@Override
+	boolean compareAndSetState(int row, long expect, long update) {
+		return STATES.compareAndSet(states[row >>> PAGE_BITS], row & PAGE_MASK, expect, update);
+	}
+
+	@Override
+	int appendRow(int id, String title, String author, String genre, long state) {
+		int row = rows;
+		int page = row >>> PAGE_BITS;
+		if (page == ids.length) {
+			growDirectory();
+		}
+		if (ids[page] == null) {
+			ids[page] = new int[PAGE_SIZE];
+			genreCodes[page] = new int[PAGE_SIZE];
+			states[page] = new long[PAGE_SIZE];
+			titles[page] = new String[PAGE_SIZE];
+			authorCodes[page] = new int[PAGE_SIZE];
+		}
+		int i = row & PAGE_MASK;
+		ids[page][i] = id;
+		titles[page][i] = title;
+		authorCodes[page][i] = authors.code(author);
+		genreCodes[page][i] = genres.code(genre);
+		states[page][i] = state;
+		// Publishes the row to threads that read the row count
+		rows = row + 1;
+		return row;
+	}
+
+	/**
+	 * Scans the state column page by page for the next checked out row, without going through getState for each row.
+	 */
+	@Override
+	int nextCheckedOut(int from) {
+		int end = rows;
+		int row = from;
+		while (row < end) {
+			long[] page = states[row >>> PAGE_BITS];
+			int pageEnd = Math.min(end, (row & ~PAGE_MASK) + PAGE_SIZE);
+			for (; row < pageEnd; row++) {
+				if ((page[row & PAGE_MASK] & Book.CHECKED_OUT) != 0 && !isDeleted(row)) {
+					return row;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Doubles the number of pages each column can have. The pages themselves are shared, not copied.
+	 */
+	private void growDirectory() {
+		int length = ids.length * 2;
+		ids = Arrays.copyOf(ids, length);
+		genreCodes = Arrays.copyOf(genreCodes, length);
+		states = Arrays.copyOf(states, length);
+		titles = Arrays.copyOf(titles, length);
+		authorCodes = Arrays.copyOf(authorCodes, length);
+	}
+}
@@ -1,16 +1,30 @@
 package main;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
 import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.IntFunction;
+import java.util.stream.Collector;
 
 import data_structures.ArrayList;
 import data_structures.DoublyLinkedList;
+import data_structures.IntArrayList;
+import data_structures.IntHashMap;
+import data_structures.IntIntHashMap;
 import data_structures.SinglyLinkedList;
+import data_structures.StringDictionary;
 import interfaces.FilterFunction;
 import interfaces.List;
 /**
@@ -19,103 +33,501 @@ import interfaces.List;
 * return book, check whether a book is in the catalog and available for checkout, how many books of the same title are in the catalog,
 * generate a report of a summary of the library catalog, count of the books by genre,  show which books are checked out, write a report to
 * the file, search for users, and search for books.
+*
+* With a mutation log, a change is made in memory first, written to the log, and the method returns once the log is on
+* disk. If the write fails the method throws UncheckedIOException and the change stays in memory without being durable,
+* since other threads may already have seen it. From then on every change is refused before it is made, until the
+* catalog is opened again. close() waits for the log, so the catalog should be closed when it is no longer used. Once it
+* is closed, every change is refused with IllegalStateException.
 */
-public class LibraryCatalog {
+public class LibraryCatalog implements AutoCloseable {
+	// Genres the report always lists first and in this order, even when the catalog has none of them
+	private static final String[] REPORT_GENRES = { "Adventure", "Fiction", "Classics", "Mystery", "Science Fiction" };
+	private static final String REPORT_FILE = "library_report.txt";
+	
 	private List<Book> books;
 	private List<User> users;
-	private float totalFees;
+	// Books keyed by their ID so lookups by ID don't have to scan the whole catalog. A columnar catalog keys the rows of
+	// its books in rowIndex instead, and makes a view of the row when a book is looked up.
+	private IntHashMap<Book> bookIndex;
+	private IntIntHashMap rowIndex;
+	// Books removed from the catalog while a user still held them, so the user's books and fees stay as they were
+	private final IntHashMap<Book> removedBooks = new IntHashMap<>();
+	// Finds the books users hold, shared by every user
+	private final IntFunction<Book> heldBookLookup = this::findHeldBook;
+	// Columns holding the books of a columnar catalog, null otherwise
+	private BookColumns columns;
+	// Codes of the authors and genres of the books, given by this catalog only (see Book.encode)
+	private final StringDictionary authorDictionary = new StringDictionary();
+	private final StringDictionary genreDictionary = new StringDictionary();
+	// Amount of books of each genre, kept up to date as books are added and removed
+	private GenreTally genres;
+	// Late fees of each user, kept up to date as books are checked out and returned
+	private FeeLedger ledger;
+	// Checked out books by the day they become overdue
+	private OverdueIndex overdue;
+	// Direct changes to books and users (see Book.directChanges) already counted in the ledger and the overdue index
+	private volatile long seenBookChanges;
+	private volatile long seenUserChanges;
+	// Counts of the books added or removed and of the checkouts and returns, they tell the report cache what changed
+	private final AtomicLong structureVersion = new AtomicLong();
+	private final AtomicLong loanVersion = new AtomicLong();
+	// Sections of the last report, null unless the options ask for a report cache
+	private ReportCache reportCache;
+	// Writes the report file in the background for generateReportAsync
+	private final AsyncReportFile asyncReport = new AsyncReportFile(Paths.get(REPORT_FILE), this::renderReportFile);
+	// ID given to the next book added to the catalog
+	private int nextId;
+	// Where the catalog was loaded from
+	private CatalogOptions options;
+	// Durable record of every change, null if changes are only kept in memory
+	private final MutationLog log;
+	// Set by close, changes are refused from then on
+	private volatile boolean closed;
+	// Structure and per-book stripe locks, they do nothing unless the catalog is in concurrent mode
+	private CatalogLocks locks;
+	// Held by saveSnapshot, so two snapshots can't cut the log at each other's marks
+	private final Object snapshotLock = new Object();
+	// Pool of parallel reports when the options set report threads, made by the first one and shut down by close
+	private ForkJoinPool reportPool;
+	private final Object reportPoolLock = new Object();
 		
 	public LibraryCatalog() throws IOException {
-		this.books = getBooksFromFiles();
-		this.users = getUsersFromFiles();
+		this(new CatalogOptions());
+	}
+	
+	/**
+	 * Creates a catalog from the data files and load settings given in options.
+	 * @param options Where the data files are and how to load them.
+	 * @throws IOException If an error occurs while reading the files.
+	 */
+	public LibraryCatalog(CatalogOptions options) throws IOException {
+		this.options = options;
+		this.locks = options.isConcurrent() ? CatalogLocks.striped() : CatalogLocks.none();
+		this.reportCache = options.isReportCache() ? new ReportCache() : null;
+		CatalogSnapshot snapshot = null;
+		if (options.getSnapshotPath() != null) {
+			snapshot = CatalogSnapshot.load(options.getSnapshotPath(), options);
+		}
+		// Mapped files made from the current books file hold every change up to the last snapshot, and often later ones
+		List<Book> mapped = openMapped();
+		if (snapshot != null && snapshot.getBooks() == null && mapped == null) {
+			// The books of the snapshot were in mapped files that are gone
+			snapshot = null;
+		}
+		if (snapshot != null) {
+			this.books = mapped != null ? mapped : store(encode(snapshot.getBooks()));
+			indexBooks();
+			nextId = Math.max(nextId, snapshot.getNextId());
+			this.users = snapshot.getUsers(heldBookLookup);
+		} else {
+			this.books = mapped != null ? mapped : loadBooks();
+			indexBooks();
+			this.users = getUsersFromFiles(options.getUserPath());
+		}
+		buildLedger();
+		// Replay the changes made since the snapshot (or since the CSV files, if there is no snapshot)
+		this.log = options.getLogPath() != null ? MutationLog.open(options.getLogPath(), this) : null;
+		if (snapshot == null && options.getSnapshotPath() != null) {
+			// The snapshot was missing or stale, replace it with one of what was just read
+			saveSnapshot(options.getSnapshotPath());
+		}
+	}
+	
+	/**
+	 * Creates a catalog from books and users that are already loaded instead of reading them from the data files.
+	 * @param books The books of the catalog.
+	 * @param users The users of the catalog.
+	 */
+	public LibraryCatalog(List<Book> books, List<User> users) {
+		this(books, users, new CatalogOptions());
+	}
+	
+	/**
+	 * Creates a catalog from books and users that are already loaded. Only the settings of options that don't
+	 * involve the data files (such as concurrent mode) are used.
+	 * A columnar catalog copies the books into its columns, so the given list isn't kept, and the users are made to look
+	 * their books up in the catalog by ID so they see the copies instead of the given books.
+	 * @param books The books of the catalog.
+	 * @param users The users of the catalog.
+	 * @param options Settings of the catalog.
+	 */
+	public LibraryCatalog(List<Book> books, List<User> users, CatalogOptions options) {
+		this.options = options;
+		this.locks = options.isConcurrent() ? CatalogLocks.striped() : CatalogLocks.none();
+		this.reportCache = options.isReportCache() ? new ReportCache() : null;
+		this.books = storeOnHeap(encode(books));
+		indexBooks();
+		if (columns != null) {
+			for (User user : users) {
+				user.setCheckedOutIds(user.getCheckedOutIds(), heldBookLookup);
+			}
+		}
+		this.users = users;
+		buildLedger();
+		this.log = null;
+	}
+	
+	/**
+	 * Gets the list the catalog keeps its books in. For a columnar or mapped catalog the books are copied into columns
+	 * and the list of their views is returned, otherwise the loaded list is kept as it is.
+	 * @param loaded The books that were loaded.
+	 * @return The list of books of the catalog.
+	 */
+	private List<Book> store(List<Book> loaded) throws IOException {
+		if (options.getMappedPath() == null) {
+			return storeOnHeap(loaded);
+		}
+		int segmentRows = options.getMappedSegmentRows();
+		long stringSegment = options.getMappedStringSegment();
+		columns = MappedBookColumns.create(options.getMappedPath(), options.getCatalogPath(), loaded, genreDictionary,
+				segmentRows > 0 ? segmentRows : MappedBookColumns.DEFAULT_SEGMENT_ROWS,
+				stringSegment > 0 ? stringSegment : MappedBookColumns.DEFAULT_STRING_SEGMENT);
+		return columns.asList();
+	}
+	
+	/**
+	 * Same as store, but the books stay on the heap even if the options give a mapped file.
+	 */
+	private List<Book> storeOnHeap(List<Book> loaded) {
+		if (!options.isColumnar()) {
+			return loaded;
+		}
+		columns = HeapBookColumns.of(loaded, authorDictionary, genreDictionary);
+		return columns.asList();
+	}
+	
+	/**
+	 * Opens the mapped files the options give, if they were made from the current books file.
+	 * @return The list of books of the catalog, or null if there are no such files.
+	 */
+	private List<Book> openMapped() {
+		if (options.getMappedPath() == null) {
+			return null;
+		}
+		columns = MappedBookColumns.open(options.getMappedPath(), options.getCatalogPath(), genreDictionary);
+		return columns == null ? null : columns.asList();
+	}
+	
+	/**
+	 * Loads the books from the data files.
+	 * @return The list of books of the catalog.
+	 * @throws IOException If an error occurs while reading the files.
+	 */
+	private List<Book> loadBooks() throws IOException {
+		if (options.isParallelLoad()) {
+			ParallelBookLoader loader = new ParallelBookLoader(options.getCatalogPath(), options.getLoadThreads());
+			return store(loader.load(authorDictionary, genreDictionary));
+		}
+		return store(getBooksFromFiles(options.getCatalogPath()));
+	}
+	
+	/**
+	 * Encodes books that weren't parsed by this catalog with its dictionaries.
+	 * @param loaded The books.
+	 * @return The same list.
+	 */
+	private List<Book> encode(List<Book> loaded) {
+		for (Book book : loaded) {
+			book.encode(authorDictionary, genreDictionary);
+		}
+		return loaded;
+	}
+	
+	/**
+	 * Builds the ID index and the genre counts from the current list of books and sets the next ID after the largest one found.
+	 * If an ID repeats, the first book with that ID is the one indexed, as a front to back search would find.
+	 */
+	private void indexBooks() {
+		genres = new GenreTally(genreDictionary);
+		overdue = new OverdueIndex(books.size(), locks.stripeCount());
+		nextId = 1;
+		if (columns != null) {
+			indexRows();
+			return;
+		}
+		bookIndex = new IntHashMap<>(books.size());
+		for (Book book : books) {
+			if (!bookIndex.containsKey(book.getId())) {
+				bookIndex.put(book.getId(), book);
+				overdue.bookChanged(book);
+			}
+			genres.add(book.getGenreCode());
+			nextId = Math.max(nextId, book.getId() + 1);
+		}
+	}
+	
+	/**
+	 * Same as indexBooks for a columnar catalog. The columns are read directly, and a view is only made for the books
+	 * that are checked out.
+	 */
+	private void indexRows() {
+		rowIndex = new IntIntHashMap(columns.liveCount());
+		for (int row = columns.nextLive(0); row != -1; row = columns.nextLive(row + 1)) {
+			int id = columns.id(row);
+			if (!rowIndex.containsKey(id)) {
+				rowIndex.put(id, row);
+				if ((columns.getState(row) & Book.CHECKED_OUT) != 0) {
+					overdue.bookChanged(columns.view(row));
+				}
+			}
+			genres.add(columns.genreCode(row));
+			nextId = Math.max(nextId, id + 1);
+		}
+	}
+	
+	/**
+	 * Builds the fee ledger from the users, and notes the direct changes it already counts.
+	 */
+	private void buildLedger() {
+		seenBookChanges = Book.directChanges();
+		seenUserChanges = User.directChanges();
+		ledger = new FeeLedger(users);
+	}
+	
+	/**
+	 * Builds the overdue index again from the indexed books that are checked out.
+	 */
+	private void indexOverdue() {
+		overdue = new OverdueIndex(books.size(), locks.stripeCount());
+		if (columns != null) {
+			for (int row = columns.nextCheckedOut(0); row != -1; row = columns.nextCheckedOut(row + 1)) {
+				if (rowIndex.get(columns.id(row)) == row) {
+					overdue.bookChanged(columns.view(row));
+				}
+			}
+			return;
+		}
+		for (Book book : books) {
+			if (book.isCheckedOut() && bookIndex.get(book.getId()) == book) {
+				overdue.bookChanged(book);
+			}
+		}
+	}
+	
+	/**
+	 * Catches up with books and users changed through their own setters instead of through the catalog, so reports and
+	 * overdue books show them. Such changes are only counted (see Book.directChanges), so once the counts move the fee
+	 * ledger and the overdue index are built again, while no book can be checked out, returned, added or removed.
+	 */
+	private void catchUp() {
+		if (Book.directChanges() == seenBookChanges && User.directChanges() == seenUserChanges
+				&& ledger.size() == users.size()) {
+			return;
+		}
+		// Stripes are always taken before the structure lock
+		locks.lockStripes();
+		Lock write = locks.write();
+		write.lock();
+		try {
+			buildLedger();
+			indexOverdue();
+			loanVersion.incrementAndGet();
+		} finally {
+			write.unlock();
+			locks.unlockStripes();
+		}
+	}
+	
+	/**
+	 * Gets the book indexed under an ID. Callers hold the structure lock or validate an optimistic read afterwards.
+	 * @param id The ID of the book.
+	 * @return The book, or null if no book has that ID.
+	 */
+	private Book indexed(int id) {
+		if (rowIndex == null) {
+			return bookIndex.get(id);
+		}
+		int row = rowIndex.get(id);
+		return row == IntIntHashMap.NO_VALUE ? null : columns.view(row);
+	}
+	
+	private boolean isIndexed(int id) {
+		return rowIndex == null ? bookIndex.containsKey(id) : rowIndex.containsKey(id);
+	}
+	
+	private void index(Book book) {
+		if (rowIndex == null) {
+			bookIndex.put(book.getId(), book);
+		} else {
+			rowIndex.put(book.getId(), ((BookView) book).getRow());
+		}
+	}
+	
+	/**
+	 * Takes a book out of the ID index.
+	 * @param id The ID of the book.
+	 * @return The book that was indexed, or null if no book has that ID.
+	 */
+	private Book unindex(int id) {
+		if (rowIndex == null) {
+			return bookIndex.remove(id);
+		}
+		int row = rowIndex.remove(id);
+		return row == IntIntHashMap.NO_VALUE ? null : columns.view(row);
 	}
 	
 	/** 
-	 * Reads a file to return a list of books.
+	 * Reads a file to return a list of books. The file is memory-mapped and parsed field by field in place.
+	 * @param path The path of the books file.
 	 * @return List of books from the file.
 	 * @throws IOException If an error occurs while reading the file.
 	 */
-	private List<Book> getBooksFromFiles() throws IOException {
+	private List<Book> getBooksFromFiles(String path) throws IOException {
+		CsvCursor csv = CsvCursor.open(path);
+		// Skip the header
+		csv.endRow();
+		return parseBooks(csv, authorDictionary, genreDictionary);
+	}
+	
+	/**
+	 * Parses the book rows left in csv.
+	 * @param csv Cursor at the start of a row of the books file.
+	 * @param authors The dictionary to encode the authors with.
+	 * @param genres The dictionary to encode the genres with.
+	 * @return List of the books read.
+	 */
+	static List<Book> parseBooks(CsvCursor csv, StringDictionary authors, StringDictionary genres) {
 		List<Book> bookList = new ArrayList<>();
-		
-		BufferedReader reader = new BufferedReader(new FileReader("data/catalog.csv"));
-		reader.readLine();
-		String line;
-		
-		while ((line = reader.readLine())!= null) {
-			String[] bookInfo = line.split(",");
-			int id = Integer.parseInt(bookInfo[0].trim());
-			String title = bookInfo[1].trim();
-			String author = bookInfo[2].trim();
-			String genre = bookInfo[3].trim();
-			LocalDate lastCheckOut = LocalDate.parse(bookInfo[4].trim());
-			boolean checkedOut = Boolean.parseBoolean(bookInfo[5].trim());
+		while (csv.hasNextRow()) {
+			int id = csv.nextInt();
+			String title = csv.nextString();
+			String author = csv.nextString();
+			String genre = csv.nextString();
+			LocalDate lastCheckOut = csv.nextDate();
+			boolean checkedOut = csv.nextBoolean();
+			csv.endRow();
 			Book book = new Book();
 			book.setId(id);
 			book.setTitle(title);
 			book.setAuthor(author);
 			book.setGenre(genre);
-			book.setLastCheckOut(lastCheckOut);
-			book.setCheckedOut(checkedOut);
+			book.initState(lastCheckOut, checkedOut);
+			book.encode(authors, genres);
 			bookList.add(book);
 		}
-		reader.close();
 		return bookList;
 	}
 	
 	/** 
-	 * Reads a file to return a list of users.
+	 * Reads a file to return a list of users. The IDs in each user's {2 4 6} field are kept as ints, and the books are
+	 * looked up through the ID index when they are needed.
+	 * @param path The path of the users file.
 	 * @return List of users from the file.
 	 * @throws IOException If an error occurs while reading the file.
 	 */
-	private List<User> getUsersFromFiles() throws IOException {
+	private List<User> getUsersFromFiles(String path) throws IOException {
 		List<User> userList = new ArrayList<>();
-		List<Book> checkedOutList;
-		BufferedReader reader = new BufferedReader(new FileReader("data/user.csv"));
-		reader.readLine();
-		String line;
-		while ((line=reader.readLine())!=null) {
-			String[] userInfo = line.split(",");
-			int id = Integer.parseInt(userInfo[0].trim());
-			String name = userInfo[1].trim();
-			if (userInfo.length==3) {
-				checkedOutList = getCheckedOutList(userInfo[2].replaceAll("\\s", "").replace("{", "").replace("}", "").trim());
-			} else {
-				checkedOutList = new ArrayList<>();
-			}
+		CsvCursor csv = CsvCursor.open(path);
+		// Skip the header
+		csv.endRow();
+		while (csv.hasNextRow()) {
+			int id = csv.nextInt();
+			String name = csv.nextString();
+			IntArrayList checkedOutIds = new IntArrayList();
+			csv.nextIdSet(checkedOutIds::add);
+			checkedOutIds.trimToSize();
+			csv.endRow();
 			User user = new User();
 			user.setId(id);
 			user.setName(name);
-			user.setCheckedOutList(checkedOutList);
+			user.setCheckedOutIds(checkedOutIds, heldBookLookup);
 			userList.add(user);
 		}
-		reader.close();
 		return userList;
 	}
 	
 	/**
-	 * Returns a list of checked out books based on IDs.
+	 * Returns a list of checked out books based on IDs. The IDs may be separated by spaces or commas and may be
+	 * enclosed in braces, as in {2 4 6}. Each ID is resolved through the ID index, so the cost is linear in the
+	 * length of the string. IDs that are not in the catalog are skipped.
 	 * @param checkedOutBooks String containing book IDs.
 	 * @return List of checked out books.
 	 */
 	public List<Book> getCheckedOutList(String checkedOutBooks){
 		List<Book> checkedOutList = new ArrayList<>();
-		String[] bookIDs = checkedOutBooks.split(",");
-		List<Book> allBooks = getBookCatalog();
-		for (String bookID : bookIDs) {
-			int id = Integer.parseInt(bookID.trim());
-			for (Book b : allBooks) {
-				if (b.getId() == id) {
+		int id = 0;
+		boolean inNumber = false;
+		for (int i = 0; i <= checkedOutBooks.length(); i++) {
+			char c = i < checkedOutBooks.length() ? checkedOutBooks.charAt(i) : ' ';
+			if (c >= '0' && c <= '9') {
+				id = id * 10 + (c - '0');
+				inNumber = true;
+			} else if (inNumber) {
+				Book b = indexed(id);
+				if (b != null) {
 					checkedOutList.add(b);
-					break;
 				}
+				id = 0;
+				inNumber = false;
 			}
 		}
 		return checkedOutList;
 	}
 	
 	/**
-	 * Gets all books in the catalog.
+	 * Saves the current books and users to a binary snapshot that a later catalog can restore on startup
+	 * (see CatalogOptions.setSnapshotPath). The snapshot is tied to the CSV files this catalog was loaded from.
+	 * @param path Where to write the snapshot.
+	 * @throws IOException If an error occurs while writing the snapshot.
+	 */
+	public void saveSnapshot(String path) throws IOException {
+		synchronized (snapshotLock) {
+			boolean checkpoint = log != null && path.equals(options.getSnapshotPath());
+			// Every change logged before the mark is in memory already, so the snapshot holds it and the log can be cut
+			// there. Changes logged after it stay in the log, even those the snapshot happens to hold as well.
+			long mark = checkpoint ? log.mark() : 0;
+			byte[] contents;
+			// Books can't be added or removed while the snapshot is read, checkouts and returns go on
+			Lock read = locks.read();
+			read.lock();
+			try {
+				// Mapped files keep the books themselves, the snapshot only needs the users
+				contents = CatalogSnapshot.encode(options, columns instanceof MappedBookColumns ? null : books, users, nextId);
+			} finally {
+				read.unlock();
+			}
+			CatalogSnapshot.write(path, contents);
+			if (checkpoint) {
+				if (columns != null) {
+					// The mapped files are where the next start finds the changes before the mark
+					columns.force();
+				}
+				log.truncate(mark);
+			}
+		}
+	}
+	
+	/**
+	 * Waits for a report being written by generateReportAsync, then writes any pending changes to the mutation log and
+	 * closes it. The books of a mapped catalog are written to their files as well, and the threads of parallel reports
+	 * are stopped. Changes are refused from the start of the call, closing a closed catalog does nothing.
+	 * @throws IOException If an error occurs while writing or closing the files.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		asyncReport.await();
+		synchronized (reportPoolLock) {
+			if (reportPool != null) {
+				reportPool.shutdown();
+				reportPool = null;
+			}
+		}
+		if (log != null) {
+			log.close();
+		}
+		if (columns != null) {
+			columns.close();
+		}
+	}
+	
+	/**
+	 * Gets all books in the catalog. In concurrent mode the list must not be iterated while other threads add or
+	 * remove books; use searchForBook instead.
 	 * @return List of all books in the catalog.
 	 */
 	public List<Book> getBookCatalog() {
@@ -132,20 +544,52 @@ public class LibraryCatalog {
 	
 	/**
 	 * Adds a book to the catalog based on its title, author, and genre. Also sets checked out to false, last checkout day to September 15, 2023,
-	 * and gives the book a unique ID based on the amount of books in the catalog and in what order they were added.
+	 * and gives the book a unique ID, one more than the largest ID the catalog has given so far.
 	 * @param title The title of the book.
 	 * @param author The author of the book.
 	 * @param genre The genre of the book.
 	 */
 	public void addBook(String title, String author, String genre) {
-		Book book = new Book();
-		book.setTitle(title);
-		book.setAuthor(author);
-		book.setGenre(genre);
-		book.setCheckedOut(false);
-		book.setLastCheckOut(LocalDate.of(2023, 9, 15));
-		book.setId(books.size()+1);
-		books.add(book);
+		long sequence = 0;
+		Lock write = locks.write();
+		write.lock();
+		try {
+			checkWritable();
+			int id = nextId;
+			insertBook(id, title, author, genre);
+			if (log != null) {
+				sequence = log.appendAdd(id, title, author, genre);
+			}
+		} finally {
+			write.unlock();
+		}
+		// Wait for the disk without holding any lock, so other changes can join the same write
+		if (log != null) {
+			log.awaitDurable(sequence);
+		}
+	}
+	
+	/**
+	 * Creates a book with the given ID and adds it to the list and the index.
+	 */
+	private void insertBook(int id, String title, String author, String genre) {
+		Book book;
+		if (columns != null) {
+			book = columns.append(id, title, author, genre, Book.packState(LocalDate.of(2023, 9, 15), false));
+		} else {
+			book = new Book();
+			book.setTitle(title);
+			book.setAuthor(author);
+			book.setGenre(genre);
+			book.initState(LocalDate.of(2023, 9, 15), false);
+			book.setId(id);
+			book.encode(authorDictionary, genreDictionary);
+			books.add(book);
+		}
+		nextId = Math.max(nextId, id + 1);
+		index(book);
+		genres.add(book.getGenreCode());
+		structureVersion.incrementAndGet();
 	}
 	
 	/**
@@ -153,15 +597,32 @@ public class LibraryCatalog {
 	 * @param id The ID of the book to be removed.
 	 */
 	public void removeBook(int id) {
-		int index = -1;
-		for (int i = 0; i < books.size(); i++) {
-			if (books.get(i).getId() == id) {
-				index = i;
-				break;
+		long sequence = 0;
+		// The book's stripe keeps a checkout or return of it from running while it is taken out. Stripes are always
+		// taken before the structure lock.
+		Lock stripe = locks.stripe(id);
+		Lock write = locks.write();
+		stripe.lock();
+		write.lock();
+		try {
+			checkWritable();
+			Book b = unindex(id);
+			if (b != null) {
+				books.remove(b);
+				genres.remove(b.getGenreCode());
+				overdue.bookRemoved(b);
+				keepIfHeld(b);
+				structureVersion.incrementAndGet();
+				if (log != null) {
+					sequence = log.append(MutationLog.REMOVE, id, 0);
+				}
 			}
+		} finally {
+			write.unlock();
+			stripe.unlock();
 		}
-		if (index != -1) {
-			books.remove(index);
+		if (sequence != 0) {
+			log.awaitDurable(sequence);
 		}
 	}	
 	
@@ -171,20 +632,29 @@ public class LibraryCatalog {
 	 * @return True if the book was successfully checked out. False if the book is not in the library or is already checked out.
 	 */
 	public boolean checkOutBook(int id) {
-		Book b = null;
-		for (Book book : books) {
-			if (book.getId()==id) {
-				b = book;
-				break;
+		long today = today();
+		checkWritable();
+		long sequence = 0;
+		// The stripe keeps the book in the catalog until the change is made, and keeps this book's log records in the
+		// same order as its changes
+		Lock stripe = locks.stripe(id);
+		stripe.lock();
+		try {
+			Book b = findBook(id);
+			if (b == null || !b.tryCheckOut(today)) {
+				return false;
+			}
+			stateChanged(b);
+			if (log != null) {
+				sequence = log.append(MutationLog.CHECK_OUT, id, (int) today);
 			}
+		} finally {
+			stripe.unlock();
 		}
-		if (b != null && !b.isCheckedOut()) {
-			b.setCheckedOut(true);
-			b.setLastCheckOut(LocalDate.now());
-			return true;
-		} else {
-			return false;
+		if (log != null) {
+			log.awaitDurable(sequence);
 		}
+		return true;
 	}
 	
 	/**
@@ -194,35 +664,195 @@ public class LibraryCatalog {
 	 * @return True if the book was successfully returned. False if the book doesn't belong to the library.
 	 */
 	public boolean returnBook(int id) {
-		Book b = null;
-		for (Book book : books) {
-			if (book.getId() == id && book.isCheckedOut()) {
-				b = book;
-				break;
+		checkWritable();
+		long sequence = 0;
+		Lock stripe = locks.stripe(id);
+		stripe.lock();
+		try {
+			Book b = findBook(id);
+			if (b == null || !b.tryCheckIn()) {
+				return false;
+			}
+			stateChanged(b);
+			if (log != null) {
+				sequence = log.append(MutationLog.RETURN, id, 0);
+			}
+		} finally {
+			stripe.unlock();
+		}
+		if (log != null) {
+			log.awaitDurable(sequence);
+		}
+		return true;
+	}
+	
+	/**
+	 * Fails if the catalog can't take changes. Every change checks this before it is made.
+	 * @throws IllegalStateException If the catalog is closed.
+	 * @throws java.io.UncheckedIOException If the mutation log failed to write an earlier change.
+	 */
+	private void checkWritable() {
+		if (closed) {
+			throw new IllegalStateException("The catalog is closed");
+		}
+		if (log != null) {
+			log.checkWritable();
+		}
+	}
+	
+	/**
+	 * Gets the day checkouts are dated with.
+	 * @return Today as an epoch day, by the clock of the options or the system date if there is none.
+	 */
+	private long today() {
+		Clock clock = options.getClock();
+		return (clock == null ? LocalDate.now() : LocalDate.now(clock)).toEpochDay();
+	}
+	
+	/**
+	 * Gets the day the catalog calculates fees as of, the same day its reports use. Pass it to Book.calculateFees and
+	 * User.calculateTotalFees to get the fees the report shows.
+	 * @return Today by the clock of the options, or September 15, 2023 if there is none.
+	 */
+	public LocalDate getFeeDate() {
+		return LocalDate.ofEpochDay(feeDay());
+	}
+	
+	/**
+	 * Gets the day reports calculate fees as of.
+	 * @return Today by the clock of the options as an epoch day, or September 15, 2023 if there is none.
+	 */
+	private long feeDay() {
+		Clock clock = options.getClock();
+		return clock == null ? Book.FEE_DATE.toEpochDay() : LocalDate.now(clock).toEpochDay();
+	}
+	
+	/**
+	 * Keeps a book that was taken out of the index if a user holds it. The user keeps finding it, so their books and
+	 * fees don't change, the same as when users held the Book objects themselves.
+	 */
+	private void keepIfHeld(Book b) {
+		if (ledger.isHeld(b.getId())) {
+			removedBooks.put(b.getId(), b);
+		}
+	}
+	
+	/**
+	 * Updates the fee ledger and the overdue index after a book was checked out or returned.
+	 */
+	private void stateChanged(Book b) {
+		ledger.bookChanged(b.getId());
+		overdue.bookChanged(b);
+		loanVersion.incrementAndGet();
+	}
+	
+	/**
+	 * Looks up a book by ID. In concurrent mode the lookup is an optimistic read that only falls back to the read lock
+	 * if a book was added or removed at the same time.
+	 * @param id The ID of the book.
+	 * @return The book, or null if it is not in the catalog.
+	 */
+	private Book findBook(int id) {
+		return findBook(id, false);
+	}
+	
+	/**
+	 * Looks up a book a user holds by ID. Books removed from the catalog are found as well, see keepIfHeld.
+	 * @param id The ID of the book.
+	 * @return The book, or null if it was never in the catalog.
+	 */
+	private Book findHeldBook(int id) {
+		return findBook(id, true);
+	}
+	
+	private Book findBook(int id, boolean removed) {
+		long stamp = locks.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				Book b = indexed(id);
+				if (b == null && removed) {
+					b = removedBooks.get(id);
+				}
+				if (locks.validate(stamp)) {
+					return b;
+				}
+			} catch (RuntimeException e) {
+				// The index was being resized under us, read it again under the lock
 			}
 		}
+		Lock read = locks.read();
+		read.lock();
+		try {
+			Book b = indexed(id);
+			return b == null && removed ? removedBooks.get(id) : b;
+		} finally {
+			read.unlock();
+		}
+	}
+	
+	/*
+	 * The replay methods apply a change read from the mutation log without logging it again. Replaying a change that
+	 * is already in the catalog (because the snapshot was saved after it) leaves the catalog as it is.
+	 */
+	
+	void replayAdd(int id, String title, String author, String genre) {
+		if (!isIndexed(id)) {
+			insertBook(id, title, author, genre);
+		}
+	}
+	
+	void replayRemove(int id) {
+		Book b = unindex(id);
 		if (b != null) {
-			b.setCheckedOut(false);
-			b.setLastCheckOut(null);
-			return true;
-		} else {
-			return false;
+			books.remove(b);
+			genres.remove(b.getGenreCode());
+			overdue.bookRemoved(b);
+			keepIfHeld(b);
+			structureVersion.incrementAndGet();
+		}
+	}
+	
+	void replayCheckOut(int id, int day) {
+		Book b = indexed(id);
+		if (b != null && b.tryCheckOut(day)) {
+			stateChanged(b);
+		}
+	}
+	
+	void replayReturn(int id) {
+		Book b = indexed(id);
+		if (b != null && b.tryCheckIn()) {
+			stateChanged(b);
 		}
 	}
 	
+	/**
+	 * Gets the books that start owing fees on the given day, for example to notify their users.
+	 * @param date The day to check.
+	 * @return The books that become overdue on that day.
+	 */
+	public List<Book> getNewlyOverdueBooks(LocalDate date) {
+		catchUp();
+		return overdue.becameOverdue(date.toEpochDay());
+	}
+	
+	/**
+	 * Gets every book that owes fees as of the given day, the ones that have been late the longest first.
+	 * @param date The day to check.
+	 * @return The overdue books.
+	 */
+	public List<Book> getOverdueBooks(LocalDate date) {
+		catchUp();
+		return overdue.overdue(date.toEpochDay());
+	}
+	
 	/**
 	 * Shows whether or not a book is available for checkout.
 	 * @param id The ID of the book to be checked.
 	 * @return True if the book can be checked out. False if the book is not in the library or is already checked out.
 	 */
 	public boolean getBookAvailability(int id) {
-		Book b = null;
-		for (Book book : books) {
-			if (book.getId() == id) {
-				b = book;
-				break;
-			}
-		}
+		Book b = findBook(id);
 		return (b != null) && (!b.isCheckedOut());
 	}
 	
@@ -232,150 +862,346 @@ public class LibraryCatalog {
 	 * @return The amount of books with the desired title.
 	 */
 	public int bookCount(String title) {
-		int count = 0;
-		for (Book book : books) {
-			if (book.getTitle().equalsIgnoreCase(title)) {
-				count++;
+		Lock read = locks.read();
+		read.lock();
+		try {
+			if (options.isParallelSearch()) {
+				return (int) books.parallelStream().filter(book -> book.getTitle().equalsIgnoreCase(title)).count();
+			}
+			int count = 0;
+			for (Book book : books) {
+				if (book.getTitle().equalsIgnoreCase(title)) {
+					count++;
+				}
 			}
+			return count;
+		} finally {
+			read.unlock();
+		}
+	}
+	
+	/**
+	 * Shows the amount of books of a genre. The amount is kept up to date as books are added and removed, so nothing
+	 * is scanned.
+	 * @param genre The genre to be counted, in any case.
+	 * @return Amount of books of the desired genre.
+	 */
+	public int bookCountByGenre(String genre) {
+		Lock read = locks.read();
+		read.lock();
+		try {
+			return genres.count(genre);
+		} finally {
+			read.unlock();
+		}
+	}
+	
+	/**
+	 * Searches for the books of a genre, ignoring case. The genre is matched to its codes once, then each book is
+	 * checked by comparing the code of its genre instead of the String.
+	 * @param genre The genre to search for.
+	 * @return List of books of that genre.
+	 */
+	public List<Book> searchByGenre(String genre) {
+		StringDictionary dictionary = genreDictionary;
+		boolean[] matches = new boolean[dictionary.size()];
+		for (int code = 0; code < matches.length; code++) {
+			matches[code] = dictionary.get(code).equalsIgnoreCase(genre);
 		}
-		return count;
+		return searchForBook(book -> {
+			int code = book.getGenreCode();
+			if (code == StringDictionary.NO_CODE) {
+				// A genre set on the book directly has no code
+				String bookGenre = book.getGenre();
+				return bookGenre != null && bookGenre.equalsIgnoreCase(genre);
+			}
+			// A genre first seen after the search started has a code past the matches
+			return code < matches.length ? matches[code] : dictionary.get(code).equalsIgnoreCase(genre);
+		});
 	}
 	
 	/**
-	 * Creates a report of the books as well as the users with late fees.
+	 * Creates a report of the books as well as the users with late fees, writes it to library_report.txt and prints it.
 	 * @throws IOException If an error occurs while writing the report.
 	 */
 	public void generateReport() throws IOException {
-		totalFees = 0;
-		String output = "\t\t\t\tREPORT\n\n";
-		output += "\t\tSUMMARY OF BOOKS\n";
-		output += "GENRE\t\t\t\t\t\tAMOUNT\n";
-		/*
-		 * In this section you will print the amount of books per category.
-		 * 
-		 * Place in each parenthesis the specified count. 
-		 * 
-		 * Note this is NOT a fixed number, you have to calculate it because depending on the 
-		 * input data we use the numbers will differ.
-		 * 
-		 * How you do the count is up to you. You can make a method, use the searchForBooks()
-		 * function or just do the count right here.
-		 */
-		output += "Adventure\t\t\t\t\t" + bookCountByGenre("Adventure") + "\n";
-		output += "Fiction\t\t\t\t\t\t" + bookCountByGenre("Fiction") + "\n";
-		output += "Classics\t\t\t\t\t" + bookCountByGenre("Classics") + "\n";
-		output += "Mystery\t\t\t\t\t\t" + bookCountByGenre("Mystery") + "\n";
-		output += "Science Fiction\t\t\t\t\t" + bookCountByGenre("Science Fiction") + "\n";
-		output += "====================================================\n";
-		output += "\t\t\tTOTAL AMOUNT OF BOOKS\t" + books.size() + "\n\n";
-		
-		/*
-		 * This part prints the books that are currently checked out
-		 */
-		output += "\t\t\tBOOKS CURRENTLY CHECKED OUT\n\n";
-		/*
-		 * Here you will print each individual book that is checked out.
-		 * 
-		 * Remember that the book has a toString() method. 
-		 * Notice if it was implemented correctly it should print the books in the 
-		 * expected format.
-		 * 
-		 * PLACE CODE HERE
-		 */
-		for (Book book : books) {
-			if (book.isCheckedOut()) {
-				output += book.toString()+"\n";
+		generateReport(true);
+	}
+	
+	/**
+	 * Creates a report of the books as well as the users with late fees and writes it to library_report.txt.
+	 * The report is streamed to the file as each section is produced, except in concurrent mode (see writeReport). With a
+	 * report cache, the file is left as it is when nothing changed since it was last written.
+	 * @param echo True to also print the report to the console.
+	 * @throws IOException If an error occurs while writing the report.
+	 */
+	public void generateReport(boolean echo) throws IOException {
+		catchUp();
+		Path path = Paths.get(REPORT_FILE);
+		// Read before the report is rendered, so a change made meanwhile makes the next report write the file again
+		long version = structureVersion.get() + loanVersion.get();
+		long day = feeDay();
+		if (reportCache != null && reportCache.isFileCurrent(version, day) && Files.exists(path)) {
+			// Nothing changed since the file was written
+			if (echo) {
+				Writer console = new BufferedWriter(new OutputStreamWriter(System.out));
+				writeReport(console);
+				console.write(System.lineSeparator());
+				console.flush();
 			}
+			return;
 		}
-		
-		
-		output += "====================================================\n";
-		output += "\t\t\tTOTAL AMOUNT OF BOOKS\t" + printCheckedOutBooks(output) + "\n\n";
-		
-		
-		/*
-		 * Here we will print the users the owe money.
-		 */
-		output += "\n\n\t\tUSERS THAT OWE BOOK FEES\n\n";
-		/*
-		 * Here you will print all the users that owe money.
-		 * The amount will be calculating taking into account 
-		 * all the books that have late fees.
-		 * 
-		 * For example if user Jane Doe has 3 books and 2 of them have late fees.
-		 * Say book 1 has $10 in fees and book 2 has $78 in fees.
-		 * 
-		 * You would print: Jane Doe\t\t\t\t\t$88.00
-		 * 
-		 * Notice that we place 5 tabs between the name and fee and 
-		 * the fee should have 2 decimal places.
-		 * 
-		 * PLACE CODE HERE!
-		 */
-		for (User user : users) {
-			float fees = user.calculateTotalFees();
-			if (fees>0) {
-				output += user.getName() + "\t\t\t\t\t$" + fees + "\n";
-				totalFees += fees;
+		try (Writer file = Files.newBufferedWriter(path)) {
+			if (echo) {
+				Writer console = new BufferedWriter(new OutputStreamWriter(System.out));
+				writeReport(new TeeWriter(file, console));
+				// Same trailing line break as printing the whole report with println
+				console.write(System.lineSeparator());
+				console.flush();
+			} else {
+				writeReport(file);
 			}
 		}
-
-			
-		output += "====================================================\n";
-		output += "\t\t\t\tTOTAL DUE\t$" + totalFees + "\n\n\n";
-		output += "\n\n";
-		System.out.println(output);// You can use this for testing to see if the report is as expected.
-		
+		if (reportCache != null) {
+			reportCache.fileWritten(version, day);
+		}
+	}
+	
+	/**
+	 * Writes the report to library_report.txt in the background without printing it. In concurrent mode the report is
+	 * rendered on a pool thread when the write starts, otherwise it is rendered on the calling thread before this
+	 * returns, as books may only be changed by one thread at a time. Calls made while a write is running share the next
+	 * one. Don't mix this with generateReport while a write is pending, both write the same file.
+	 * @return A future completed once the file holds a report at least as recent as this call, or completed
+	 * exceptionally with the error if the file could not be written.
+	 */
+	public CompletableFuture<Void> generateReportAsync() {
+		if (options.isConcurrent()) {
+			return asyncReport.request();
+		}
+		// Outside concurrent mode nothing keeps other threads from changing the books, so render on this thread
+		try {
+			return asyncReport.request(renderReportFile());
+		} catch (IOException | RuntimeException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+	
+	/**
+	 * Renders the report for generateReportAsync.
+	 * @return The report, or null if the report cache knows the file already holds it.
+	 */
+	private AsyncReportFile.Rendered renderReportFile() throws IOException {
+		catchUp();
+		// Versions the report is rendered from
+		long version = structureVersion.get() + loanVersion.get();
+		long day = feeDay();
+		if (reportCache != null && reportCache.isFileCurrent(version, day) && Files.exists(Paths.get(REPORT_FILE))) {
+			return null;
+		}
+		StringWriter report = new StringWriter();
+		renderReport(report);
+		return new AsyncReportFile.Rendered(StandardCharsets.UTF_8.encode(report.toString()), () -> {
+			if (reportCache != null) {
+				reportCache.fileWritten(version, day);
+			}
+		});
+	}
+	
+	/**
+	 * Writes the report section by section. If the options ask for parallel reports, the checked out books and the fees
+	 * are worked out on a fork-join pool and written in the same order, so the report is the same either way. If they
+	 * ask for a report cache, a section is only worked out again when something it shows has changed.
+	 *
+	 * The report is streamed to out as each section is produced, so it is never held in memory as a whole. In concurrent
+	 * mode books can't be added or removed while the report is produced, so it is rendered into memory instead and
+	 * written to out once that lock is released, and a slow file or console doesn't hold up the catalog.
+	 * @param out Where to write the report.
+	 * @throws IOException If an error occurs while writing the report.
+	 */
+	public void writeReport(Writer out) throws IOException {
+		catchUp();
+		if (!options.isConcurrent()) {
+			renderReport(out);
+			return;
+		}
+		StringWriter report = new StringWriter();
+		renderReport(report);
+		out.write(report.toString());
+	}
+	
+	/**
+	 * Renders the report under the read lock.
+	 * @param out Where to render the report. In concurrent mode it should be in memory, since it is written to while
+	 * books can't be added or removed.
+	 */
+	private void renderReport(Writer out) throws IOException {
+		ForkJoinPool pool = options.isParallelReport() ? reportPool() : null;
+		// Checkouts and returns go on while the report is rendered, only adding and removing books waits
+		Lock read = locks.read();
+		read.lock();
+		try {
+			long structure = structureVersion.get();
+			long loans = loanVersion.get();
+			long day = feeDay();
+			out.write("\t\t\t\tREPORT\n\n");
+			writeSection(out, ReportCache.SUMMARY, structure, 0, this::writeSummary);
+			writeSection(out, ReportCache.CHECKED_OUT, structure + loans, 0, o -> writeCheckedOut(o, pool));
+			writeSection(out, ReportCache.FEES, loans, day, o -> writeFees(o, pool, day));
+			out.write("\n\n");
+		} finally {
+			read.unlock();
+		}
+	}
+	
+	/**
+	 * Gets the pool parallel reports are worked out on. With report threads set in the options, the catalog makes one
+	 * pool of that many threads the first time it is needed and keeps it for every report until close.
+	 * @return The pool of the catalog, or the common pool if the options don't set report threads.
+	 */
+	private ForkJoinPool reportPool() {
+		if (options.getReportThreads() <= 0) {
+			return ForkJoinPool.commonPool();
+		}
+		synchronized (reportPoolLock) {
+			if (reportPool == null) {
+				reportPool = new ForkJoinPool(options.getReportThreads());
+			}
+			return reportPool;
+		}
+	}
+	
+	/**
+	 * Writes one section of the report, from the cache if it holds the section for the same versions.
+	 * @param version Version of what the section depends on, read before the section is rendered.
+	 * @param day Day fees are calculated for, or 0 if the section doesn't depend on it.
+	 */
+	private void writeSection(Writer out, int section, long version, long day, Section renderer) throws IOException {
+		if (reportCache == null) {
+			renderer.write(out);
+			return;
+		}
+		String text = reportCache.get(section, version, day);
+		if (text == null) {
+			StringWriter rendered = new StringWriter();
+			renderer.write(rendered);
+			text = rendered.toString();
+			reportCache.put(section, version, day, text);
+		}
+		out.write(text);
+	}
+	
+	/**
+	 * Something that writes a section of the report.
+	 */
+	private interface Section {
+		void write(Writer out) throws IOException;
+	}
+	
+	/**
+	 * Writes the amount of books per genre.
+	 */
+	private void writeSummary(Writer out) throws IOException {
+		out.write("\t\tSUMMARY OF BOOKS\n");
+		out.write("GENRE\t\t\t\t\t\tAMOUNT\n");
 		/*
-		 * Here we will write to the file.
-		 * 
-		 * The variable output has all the content we need to write to the report file.
-		 * 
-		 * PLACE CODE HERE!!
+		 * The amount of books per genre comes from the genre tally, so this costs one step
+		 * per genre. Any genre besides the usual five is listed after them.
 		 */
-		writeReportToFile(output);
+		for (String genre : REPORT_GENRES) {
+			out.write(genreLine(genre, genres.count(genre)));
+		}
+		for (int i = 0; i < genres.size(); i++) {
+			if (!isReportGenre(genres.name(i)) && genres.count(i) > 0) {
+				out.write(genreLine(genres.name(i), genres.count(i)));
+			}
+		}
+		out.write("====================================================\n");
+		out.write("\t\t\tTOTAL AMOUNT OF BOOKS\t" + books.size() + "\n\n");
 	}
 	
 	/**
-	 * Shows the amount of books with the desired genre.
-	 * @param genre The genre to be counted.
-	 * @return Amount of books of the desired genre.
+	 * Writes the books that are checked out.
+	 * @param pool The pool of a parallel report, or null to write them on this thread.
 	 */
-	private int bookCountByGenre(String genre) {
-		int count = 0;
-		for (Book book : books) {
-			if (book.getGenre().equalsIgnoreCase(genre)) {
-				count++;
+	private void writeCheckedOut(Writer out, ForkJoinPool pool) throws IOException {
+		/*
+		 * This part prints the books that are currently checked out, using the toString()
+		 * format of each book.
+		 */
+		out.write("\t\t\tBOOKS CURRENTLY CHECKED OUT\n\n");
+		int checkedOutCount = 0;
+		if (pool != null) {
+			checkedOutCount = ParallelReport.writeCheckedOut(books, pool, out);
+		} else if (columns != null) {
+			// Only the state column is scanned, a view is made for the books that are printed
+			for (int row = columns.nextCheckedOut(0); row != -1; row = columns.nextCheckedOut(row + 1)) {
+				out.write(columns.view(row).toString());
+				out.write('\n');
+				checkedOutCount++;
+			}
+		} else {
+			for (Book book : books) {
+				if (book.isCheckedOut()) {
+					out.write(book.toString());
+					out.write('\n');
+					checkedOutCount++;
+				}
 			}
 		}
-		return count;
+		out.write("====================================================\n");
+		out.write("\t\t\tTOTAL AMOUNT OF BOOKS\t" + checkedOutCount + "\n\n");
 	}
 	
 	/**
-	 * Shows which books are currently checked out.
-	 * @param output The output to append title and author of checked out books.
-	 * @return The amount of books which are checked out.
+	 * Writes the users that owe fees as of a day.
+	 * @param pool The pool of a parallel report, or null to calculate the fees on this thread.
 	 */
-	private int printCheckedOutBooks(String output) {
-		int count = 0;
-		for (Book book : books) {
-			if (book.isCheckedOut()) {
-				output += book.toString() + "\n";
-				count++;
-			}
+	private void writeFees(Writer out, ForkJoinPool pool, long day) throws IOException {
+		/*
+		 * Here we print the users that owe money. The amount takes into account all the
+		 * books that have late fees, with 5 tabs between the name and the fee. The fee
+		 * ledger only visits the users that hold checked out books.
+		 */
+		out.write("\n\n\t\tUSERS THAT OWE BOOK FEES\n\n");
+		FeeLedger.Debtor feeLine = (user, fees) -> {
+			out.write(user.getName());
+			out.write("\t\t\t\t\t$");
+			out.write(String.valueOf(fees));
+			out.write('\n');
+		};
+		float totalFees = pool != null ? ledger.forEachDebtor(day, feeLine, pool) : ledger.forEachDebtor(day, feeLine);
+		out.write("====================================================\n");
+		out.write("\t\t\t\tTOTAL DUE\t$" + totalFees + "\n\n\n");
+	}
+	
+	/**
+	 * Formats a line of the genre summary. The amount is lined up in the same column for every genre.
+	 * @param genre The genre.
+	 * @param count Amount of books of the genre.
+	 * @return The line of the report.
+	 */
+	private static String genreLine(String genre, int count) {
+		String line = genre;
+		// The amount starts at column 48 with 8 column tabs, with at least one tab after the genre
+		for (int column = genre.length() / 8 * 8; column < 48 || line.equals(genre); column += 8) {
+			line += "\t";
 		}
-		return count;
+		return line + count + "\n";
 	}
 	
 	/**
-	 * Create a file with the report of books and users.
-	 * @param report The report to be added to the file.
-	 * @throws IOException If there is an error while writing the file.
+	 * Checks if a genre is one of the genres the report always lists.
+	 * @param genre The genre.
+	 * @return True if it is one of REPORT_GENRES, ignoring case.
 	 */
-	private void writeReportToFile(String report) throws IOException {
-		try (BufferedWriter writer = new BufferedWriter(new FileWriter("library_report.txt"))){
-			writer.write(report);
+	private static boolean isReportGenre(String genre) {
+		for (String reportGenre : REPORT_GENRES) {
+			if (reportGenre.equalsIgnoreCase(genre)) {
+				return true;
+			}
 		}
+		return false;
 	}
 	
 	/**
@@ -385,10 +1211,19 @@ public class LibraryCatalog {
 	 */
 	public List<User> searchForUsers(FilterFunction<User> func){
 		List<User> result = new ArrayList<>();
-		for (User user : users) {
-			if (func.filter(user)) {
-				result.add(user);
+		Lock read = locks.read();
+		read.lock();
+		try {
+			if (options.isParallelSearch()) {
+				return parallelSearch(users, func);
+			}
+			for (User user : users) {
+				if (func.filter(user)) {
+					result.add(user);
+				}
 			}
+		} finally {
+			read.unlock();
 		}
 		return result;
 	}
@@ -400,11 +1235,34 @@ public class LibraryCatalog {
 	 */
 	public List<Book> searchForBook(FilterFunction<Book> func){
 		List<Book> result = new ArrayList<>();
-		for (Book book : books) {
-			if (func.filter(book)) {
-				result.add(book);
+		Lock read = locks.read();
+		read.lock();
+		try {
+			if (options.isParallelSearch()) {
+				return parallelSearch(books, func);
+			}
+			for (Book book : books) {
+				if (func.filter(book)) {
+					result.add(book);
+				}
 			}
+		} finally {
+			read.unlock();
 		}
 		return result;
 	}
+	
+	/**
+	 * Filters a list with a parallel stream. Each thread collects the matches of its part of the list and the parts
+	 * are joined in list order.
+	 * @param list The list to search.
+	 * @param func Filter to apply to the elements.
+	 * @return List of the elements found, in the order of list.
+	 */
+	private static <E> List<E> parallelSearch(List<E> list, FilterFunction<E> func) {
+		return list.parallelStream().filter(func::filter).collect(Collector.<E, List<E>>of(ArrayList::new, List::add, (a, b) -> {
+			a.addAll(b);
+			return a;
+		}));
+	}
 }
@@ -0,0 +1,581 @@
+package main;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import data_structures.StringDictionary;
+import interfaces.List;
+
+/**
+ * Book columns kept in two memory-mapped files instead of the heap, so a catalog can hold more books than fit in the
+ * heap. Which parts of the files stay in memory is left to the page cache of the operating system.
+ *
+ * The records file has a header and then one fixed-width record of 40 bytes per row:
+ *
+ * state (long) | title (long) | author (long) | genre (long) | id (int) | flags (int)
+ *
+ * The state word is the same as in Book and is updated with compare-and-set on the mapped memory. Title, author and genre
+ * are offsets into the strings file, which holds each string as its length in bytes followed by its UTF-8 bytes, or -1
+ * for null. Each genre is stored once. The flags mark deleted rows.
+ *
+ * Genres are read through a table from their offset to their code in the genre dictionary of the catalog (see
+ * GenreTable), so a genre is decoded from the strings file once and not once per row.
+ *
+ * A single mapping can't reach 2 GB, so both files are mapped in segments (see Segments): a fixed number of records per
+ * segment of the records file, and a fixed number of bytes per segment of the strings file, with no string crossing the
+ * end of a segment. The segment sizes are stored in the header. Offsets into the files are longs, so the files are only
+ * limited by the int row numbers of BookColumns.
+ *
+ * The header holds the size and modification time of the books CSV the files were made from, and the files are only
+ * reopened while that file is unchanged. Changes made to the catalog are written to the files, so they are kept across
+ * restarts until the CSV changes. Only the rows are kept here, the catalog rebuilds its ID index and genre counts from
+ * them on every start.
+ */
+class MappedBookColumns extends BookColumns {
+	private static final int MAGIC = 0x4C434D31; // "LCM1"
+	private static final int VERSION = 2;
+	// Header of the records file
+	private static final int ROW_COUNT = 8;
+	private static final int SEGMENT_ROWS = 12;
+	private static final int SOURCE_LENGTH = 16;
+	private static final int SOURCE_MODIFIED = 24;
+	private static final int STRING_SEGMENT = 32;
+	private static final int HEADER = 64;
+	// Fields of a record
+	private static final int RECORD = 40;
+	private static final int STATE = 0;
+	private static final int TITLE = 8;
+	private static final int AUTHOR = 16;
+	private static final int GENRE = 24;
+	private static final int ID = 32;
+	private static final int FLAGS = 36;
+	private static final int DELETED = 1;
+	// Header of the strings file: the magic number and the end of the strings written so far
+	private static final int STRINGS_END = 8;
+	private static final int STRINGS_HEADER = 16;
+	// Offset stored for a null String
+	private static final long NULL = -1;
+	// Segment sizes of new files, about 1.3 GB of records and 1 GB of strings
+	static final int DEFAULT_SEGMENT_ROWS = 1 << 25;
+	static final long DEFAULT_STRING_SEGMENT = 1L << 30;
+	private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+	private final FileChannel recordChannel;
+	private final FileChannel stringChannel;
+	private MappedByteBuffer header;
+	private MappedByteBuffer stringsHeader;
+	private Segments records;
+	private Segments strings;
+	private int segmentRows;
+	private long stringSegment;
+	private volatile int rows;
+	private long stringsEnd;
+	// Offset in the strings file of the genre of each code, or 0 if it isn't there yet, so a genre is stored once
+	private long[] genreOffsets = new long[16];
+	// Code of the genre at each offset
+	private volatile GenreTable genreTable = new GenreTable(16);
+
+	private MappedBookColumns(FileChannel recordChannel, FileChannel stringChannel, StringDictionary genres) {
+		super(genres);
+		this.recordChannel = recordChannel;
+		this.stringChannel = stringChannel;
+	}
+
+	/**
+	 * Opens the mapped files of a catalog if they exist, are intact and were made from the current books CSV.
+	 * @param path The path of the records file. The strings file is next to it, ending in .strings.
+	 * @param sourcePath The path of the books CSV.
+	 * @param genres The genre dictionary of the catalog.
+	 * @return The columns, or null if the files have to be made again.
+	 */
+	static MappedBookColumns open(String path, String sourcePath, StringDictionary genres) {
+		if (!new File(path).isFile() || !new File(stringsPath(path)).isFile()) {
+			return null;
+		}
+		MappedBookColumns columns = null;
+		try {
+			columns = new MappedBookColumns(openChannel(path), openChannel(stringsPath(path)), genres);
+			if (columns.recordChannel.size() < HEADER || columns.stringChannel.size() < STRINGS_HEADER) {
+				columns.close();
+				return null;
+			}
+			columns.header = map(columns.recordChannel, 0, HEADER);
+			columns.stringsHeader = map(columns.stringChannel, 0, STRINGS_HEADER);
+			File source = new File(sourcePath);
+			MappedByteBuffer header = columns.header;
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || columns.stringsHeader.getInt(0) != MAGIC
+					|| header.getLong(SOURCE_LENGTH) != source.length()
+					|| header.getLong(SOURCE_MODIFIED) != source.lastModified()) {
+				columns.close();
+				return null;
+			}
+			columns.segment(header.getInt(SEGMENT_ROWS), header.getLong(STRING_SEGMENT));
+			columns.rows = header.getInt(ROW_COUNT);
+			columns.stringsEnd = columns.stringsHeader.getLong(STRINGS_END);
+			columns.records.ensure(recordEnd(columns.rows));
+			columns.strings.ensure(columns.stringsEnd);
+			for (int row = 0; row < columns.rows; row++) {
+				if ((columns.segmentOf(row).getInt(columns.at(row) + FLAGS) & DELETED) != 0) {
+					columns.markDeleted(row);
+				}
+			}
+			return columns;
+		} catch (IOException | RuntimeException e) {
+			// Files that can't be read are treated as missing
+			if (columns != null) {
+				try {
+					columns.close();
+				} catch (IOException suppressed) {
+					e.addSuppressed(suppressed);
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Makes new mapped files holding a copy of the books, replacing any that exist.
+	 * @param path The path of the records file. The strings file is next to it, ending in .strings.
+	 * @param sourcePath The path of the books CSV the books were read from.
+	 * @param books The books to copy, in order.
+	 * @param genres The genre dictionary of the catalog.
+	 * @param segmentRows Records per segment of the records file, DEFAULT_SEGMENT_ROWS unless the options say otherwise.
+	 * @param stringSegment Bytes per segment of the strings file, DEFAULT_STRING_SEGMENT unless the options say otherwise.
+	 * @return The columns.
+	 * @throws IOException If an error occurs while writing the files.
+	 */
+	static MappedBookColumns create(String path, String sourcePath, List<Book> books, StringDictionary genres,
+			int segmentRows, long stringSegment) throws IOException {
+		Files.deleteIfExists(Paths.get(path));
+		Files.deleteIfExists(Paths.get(stringsPath(path)));
+		MappedBookColumns columns = new MappedBookColumns(openChannel(path), openChannel(stringsPath(path)), genres);
+		columns.header = map(columns.recordChannel, 0, HEADER);
+		columns.stringsHeader = map(columns.stringChannel, 0, STRINGS_HEADER);
+		columns.segment(segmentRows, stringSegment);
+		columns.records.ensure(recordEnd(Math.max(books.size(), 1024)));
+		columns.strings.ensure(STRINGS_HEADER + Math.min(stringSegment, (long) Math.max(books.size(), 1024) * 32));
+		columns.stringsEnd = STRINGS_HEADER;
+		for (Book book : books) {
+			columns.appendRow(book.getId(), book.getTitle(), book.getAuthor(), book.getGenre(), book.getState());
+		}
+		File source = new File(sourcePath);
+		MappedByteBuffer header = columns.header;
+		header.putInt(4, VERSION);
+		header.putInt(SEGMENT_ROWS, segmentRows);
+		header.putLong(STRING_SEGMENT, stringSegment);
+		header.putLong(SOURCE_LENGTH, source.length());
+		header.putLong(SOURCE_MODIFIED, source.lastModified());
+		columns.force();
+		// The magic numbers go last, so files left behind by a crash halfway through are made again
+		columns.stringsHeader.putInt(0, MAGIC);
+		header.putInt(0, MAGIC);
+		return columns;
+	}
+
+	@Override
+	int rowCount() {
+		return rows;
+	}
+
+	@Override
+	int id(int row) {
+		return segmentOf(row).getInt(at(row) + ID);
+	}
+
+	@Override
+	void setId(int row, int id) {
+		segmentOf(row).putInt(at(row) + ID, id);
+	}
+
+	@Override
+	String title(int row) {
+		return readString(segmentOf(row).getLong(at(row) + TITLE));
+	}
+
+	@Override
+	void setTitle(int row, String title) {
+		long offset = writeString(title);
+		segmentOf(row).putLong(at(row) + TITLE, offset);
+	}
+
+	@Override
+	String author(int row) {
+		return readString(segmentOf(row).getLong(at(row) + AUTHOR));
+	}
+
+	@Override
+	void setAuthor(int row, String author) {
+		long offset = writeString(author);
+		segmentOf(row).putLong(at(row) + AUTHOR, offset);
+	}
+
+	@Override
+	String genre(int row) {
+		return genres.get(genreCode(row));
+	}
+
+	@Override
+	int genreCode(int row) {
+		long offset = segmentOf(row).getLong(at(row) + GENRE);
+		if (offset == NULL) {
+			return StringDictionary.NO_CODE;
+		}
+		int code = genreTable.get(offset);
+		return code != StringDictionary.NO_CODE ? code : addGenre(offset, readString(offset));
+	}
+
+	@Override
+	void setGenre(int row, String genre) {
+		long offset = genreOffset(genre);
+		segmentOf(row).putLong(at(row) + GENRE, offset);
+	}
+
+	@Override
+	long getState(int row) {
+		return (long) LONGS.getVolatile(segmentOf(row), at(row) + STATE);
+	}
+
+	@Override
+	boolean compareAndSetState(int row, long expect, long update) {
+		return LONGS.compareAndSet(segmentOf(row), at(row) + STATE, expect, update);
+	}
+
+	@Override
+	int appendRow(int id, String title, String author, String genre, long state) {
+		int row = rows;
+		if (row == Integer.MAX_VALUE) {
+			throw new IllegalStateException("The catalog can't hold more books");
+		}
+		long titleOffset = writeString(title);
+		long authorOffset = writeString(author);
+		long genreOffset = genreOffset(genre);
+		grow(records, recordEnd(row + 1));
+		MappedByteBuffer segment = segmentOf(row);
+		int at = at(row);
+		segment.putLong(at + STATE, state);
+		segment.putLong(at + TITLE, titleOffset);
+		segment.putLong(at + AUTHOR, authorOffset);
+		segment.putLong(at + GENRE, genreOffset);
+		segment.putInt(at + ID, id);
+		segment.putInt(at + FLAGS, 0);
+		header.putInt(ROW_COUNT, row + 1);
+		rows = row + 1;
+		return row;
+	}
+
+	@Override
+	void delete(int row) {
+		super.delete(row);
+		segmentOf(row).putInt(at(row) + FLAGS, DELETED);
+	}
+
+	/**
+	 * Writes what is still only in memory to the files and closes them.
+	 */
+	@Override
+	void close() throws IOException {
+		try {
+			force();
+		} finally {
+			try {
+				recordChannel.close();
+			} finally {
+				stringChannel.close();
+			}
+		}
+	}
+
+	/**
+	 * Writes what is still only in memory to the files.
+	 */
+	@Override
+	void force() {
+		if (strings != null) {
+			strings.force();
+		}
+		if (stringsHeader != null) {
+			stringsHeader.force();
+		}
+		if (records != null) {
+			records.force();
+		}
+		if (header != null) {
+			header.force();
+		}
+	}
+
+	/**
+	 * Sets the segment sizes and the segments of both files.
+	 */
+	private void segment(int segmentRows, long stringSegment) {
+		if (segmentRows <= 0 || segmentRows > Integer.MAX_VALUE / RECORD || stringSegment <= 4
+				|| stringSegment > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Bad segment sizes");
+		}
+		this.segmentRows = segmentRows;
+		this.stringSegment = stringSegment;
+		records = new Segments(recordChannel, HEADER, (long) segmentRows * RECORD);
+		strings = new Segments(stringChannel, STRINGS_HEADER, stringSegment);
+	}
+
+	/**
+	 * Marks a row that was deleted in the file, without writing the file again.
+	 */
+	private void markDeleted(int row) {
+		super.delete(row);
+	}
+
+	/**
+	 * Gets the segment of the records file holding a row.
+	 */
+	private MappedByteBuffer segmentOf(int row) {
+		return records.get(row / segmentRows);
+	}
+
+	/**
+	 * Gets the position of a row in its segment.
+	 */
+	private int at(int row) {
+		return (row % segmentRows) * RECORD;
+	}
+
+	/**
+	 * Gets where the records file ends when it holds a number of rows.
+	 */
+	private static long recordEnd(int rows) {
+		return HEADER + (long) rows * RECORD;
+	}
+
+	/**
+	 * Reads the String at an offset of the strings file.
+	 */
+	private String readString(long offset) {
+		if (offset == NULL) {
+			return null;
+		}
+		long relative = offset - STRINGS_HEADER;
+		MappedByteBuffer segment = strings.get((int) (relative / stringSegment));
+		int at = (int) (relative % stringSegment);
+		byte[] bytes = new byte[segment.getInt(at)];
+		segment.get(at + 4, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Appends a String to the strings file. A String that doesn't fit in what is left of the last segment starts the
+	 * next one.
+	 * @return Its offset, or NULL for a null String.
+	 */
+	private long writeString(String s) {
+		if (s == null) {
+			return NULL;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		long length = 4L + bytes.length;
+		if (length > stringSegment) {
+			throw new IllegalArgumentException("A string is too long for the strings file of the catalog");
+		}
+		long offset = stringsEnd;
+		long within = (offset - STRINGS_HEADER) % stringSegment;
+		if (within + length > stringSegment) {
+			offset += stringSegment - within;
+		}
+		grow(strings, offset + length);
+		long relative = offset - STRINGS_HEADER;
+		MappedByteBuffer segment = strings.get((int) (relative / stringSegment));
+		int at = (int) (relative % stringSegment);
+		segment.putInt(at, bytes.length);
+		segment.put(at + 4, bytes);
+		stringsEnd = offset + length;
+		stringsHeader.putLong(STRINGS_END, stringsEnd);
+		return offset;
+	}
+
+	/**
+	 * Gets the offset of a genre, writing it to the strings file the first time it is seen.
+	 */
+	private synchronized long genreOffset(String genre) {
+		if (genre == null) {
+			return NULL;
+		}
+		int code = genres.code(genre);
+		long offset = code < genreOffsets.length ? genreOffsets[code] : 0;
+		if (offset == 0) {
+			offset = writeString(genre);
+			addGenre(offset, genre);
+		}
+		return offset;
+	}
+
+	/**
+	 * Adds the genre at an offset to the genre table, giving it a code if the dictionary doesn't have it yet.
+	 * Readers call this for a genre they haven't seen, so it is synchronized with genreOffset.
+	 * @return The code of the genre.
+	 */
+	private synchronized int addGenre(long offset, String genre) {
+		int code = genreTable.get(offset);
+		if (code != StringDictionary.NO_CODE) {
+			return code;
+		}
+		code = genres.code(genre);
+		genreTable = genreTable.with(offset, code);
+		if (code >= genreOffsets.length) {
+			genreOffsets = Arrays.copyOf(genreOffsets, Math.max(code + 1, genreOffsets.length * 2));
+		}
+		if (genreOffsets[code] == 0) {
+			genreOffsets[code] = offset;
+		}
+		return code;
+	}
+
+	/**
+	 * Makes sure a file is mapped up to end, turning a failure into an unchecked exception as the setters can't throw.
+	 */
+	private static void grow(Segments segments, long end) {
+		try {
+			segments.ensure(end);
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not grow a mapped file of the catalog", e);
+		}
+	}
+
+	private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+		buffer.order(ByteOrder.nativeOrder());
+		return buffer;
+	}
+
+	private static FileChannel openChannel(String path) throws IOException {
+		return FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	private static String stringsPath(String path) {
+		return path + ".strings";
+	}
+
+	/**
+	 * Hash table from the offset of a genre to its code, with open addressing and linear probing. A genre written again
+	 * after the files were reopened has several offsets, all with the same code. Adding a genre makes a bigger copy
+	 * instead of changing the table, so a lookup takes no lock.
+	 */
+	private static final class GenreTable {
+		// Offsets, NULL in an empty slot, and the code of each one
+		private final long[] offsets;
+		private final int[] codes;
+		private int size;
+
+		GenreTable(int capacity) {
+			offsets = new long[capacity];
+			Arrays.fill(offsets, NULL);
+			codes = new int[capacity];
+		}
+
+		/**
+		 * Gets the code of the genre at an offset.
+		 * @return The code, or StringDictionary.NO_CODE if the offset isn't in the table.
+		 */
+		int get(long offset) {
+			int mask = offsets.length - 1;
+			for (int i = slot(offset, mask); offsets[i] != NULL; i = (i + 1) & mask) {
+				if (offsets[i] == offset) {
+					return codes[i];
+				}
+			}
+			return StringDictionary.NO_CODE;
+		}
+
+		/**
+		 * Makes a copy of the table with one more offset, at most half full.
+		 */
+		GenreTable with(long offset, int code) {
+			GenreTable table = new GenreTable((size + 1) * 2 > offsets.length ? offsets.length * 2 : offsets.length);
+			for (int i = 0; i < offsets.length; i++) {
+				if (offsets[i] != NULL) {
+					table.put(offsets[i], codes[i]);
+				}
+			}
+			table.put(offset, code);
+			return table;
+		}
+
+		private void put(long offset, int code) {
+			int mask = offsets.length - 1;
+			int i = slot(offset, mask);
+			while (offsets[i] != NULL) {
+				i = (i + 1) & mask;
+			}
+			offsets[i] = offset;
+			codes[i] = code;
+			size++;
+		}
+
+		private static int slot(long offset, int mask) {
+			long h = offset * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32)) & mask;
+		}
+	}
+
+	/**
+	 * A file past its header, mapped as segments of a fixed size. Segment k maps the bytes from base + k * size on. Only
+	 * the last segment grows, by mapping it again with twice the size until it is full, and then a new one is mapped.
+	 * Both mappings of a grown segment share the same pages, so a compare-and-set made through the old one while it grows
+	 * is seen through the new one.
+	 */
+	private static final class Segments {
+		private final FileChannel channel;
+		private final long base;
+		private final long size;
+		// Replaced by a new array when a segment is added or grown, readers see either array
+		private volatile MappedByteBuffer[] mapped = new MappedByteBuffer[0];
+
+		Segments(FileChannel channel, long base, long size) {
+			this.channel = channel;
+			this.base = base;
+			this.size = size;
+		}
+
+		MappedByteBuffer get(int segment) {
+			return mapped[segment];
+		}
+
+		/**
+		 * Maps the file up to at least end.
+		 * @param end Position in the file the mapping has to reach.
+		 */
+		void ensure(long end) throws IOException {
+			MappedByteBuffer[] current = mapped;
+			long needed = end - base;
+			int last = current.length - 1;
+			long reached = last < 0 ? 0 : last * size + current[last].capacity();
+			if (needed <= reached) {
+				return;
+			}
+			MappedByteBuffer[] next = Arrays.copyOf(current, (int) ((needed - 1) / size) + 1);
+			for (int k = Math.max(last, 0); k < next.length; k++) {
+				// Every segment before the last new one is mapped whole
+				long wanted = k < next.length - 1 ? size : needed - k * size;
+				long have = next[k] == null ? 0 : next[k].capacity();
+				if (wanted > have) {
+					next[k] = map(channel, base + k * size, Math.min(size, Math.max(wanted, have * 2)));
+				}
+			}
+			mapped = next;
+		}
+
+		void force() {
+			for (MappedByteBuffer buffer : mapped) {
+				buffer.force();
+			}
+		}
+	}
+}
@@ -0,0 +1,366 @@
+package main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * This class is an append-only log of the changes made to a catalog (books added, removed, checked out and returned),
+ * so they survive a restart. On startup the log is replayed on top of whatever the catalog was loaded from.
+ *
+ * Writes use group commit: each change is appended to an in-memory batch and the caller then waits until the batch is
+ * on disk. The first waiter writes and syncs everything appended so far with a single fsync, and everyone whose change
+ * was in that batch returns together, so concurrent callers share the cost of the sync.
+ *
+ * Each record is stored as its length, a CRC32 of its contents and the contents. A record cut short by a crash fails its
+ * check and is dropped, together with anything after it, when the log is opened.
+ */
+class MutationLog {
+	static final byte ADD = 1;
+	static final byte REMOVE = 2;
+	static final byte CHECK_OUT = 3;
+	static final byte RETURN = 4;
+
+	private final String path;
+	// Replaced when the log is cut, only while no batch is being written
+	private FileChannel channel;
+	// Records appended but not written yet, and the array the next batch will use
+	private byte[] pending = new byte[4096];
+	private int pendingLength;
+	private byte[] spare = new byte[4096];
+	// Sequence numbers of the last record appended and of the last one known to be on disk
+	private long appended;
+	private long durable;
+	// Whether some thread is currently writing a batch
+	private boolean flushing;
+	// Set if a batch could not be written, every later wait fails with it
+	private volatile IOException failure;
+
+	private MutationLog(String path, FileChannel channel) {
+		this.path = path;
+		this.channel = channel;
+	}
+
+	/**
+	 * Opens a log, replays the changes it holds into catalog and leaves it ready for appending.
+	 * @param path The path of the log. It is created if it doesn't exist.
+	 * @param catalog The catalog to replay the changes into.
+	 * @return The opened log.
+	 * @throws IOException If an error occurs while reading the log.
+	 */
+	static MutationLog open(String path, LibraryCatalog catalog) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		long end = replay(channel, catalog);
+		// Drop a torn record at the end so new records follow the last good one
+		channel.truncate(end);
+		channel.position(end);
+		return new MutationLog(path, channel);
+	}
+
+	/**
+	 * Reads every intact record and applies it to catalog.
+	 * @return Position right after the last intact record.
+	 */
+	private static long replay(FileChannel channel, LibraryCatalog catalog) throws IOException {
+		long size = channel.size();
+		if (size == 0) {
+			return 0;
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Mutation log too large, save a snapshot to checkpoint it");
+		}
+		// Read into the heap rather than mapping, so the file can be truncated afterwards on every platform
+		ByteBuffer buffer = ByteBuffer.allocate((int) size);
+		while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+		}
+		buffer.flip();
+		CRC32 crc = new CRC32();
+		while (buffer.remaining() >= 8) {
+			int start = buffer.position();
+			int length = buffer.getInt();
+			long expected = buffer.getInt() & 0xFFFFFFFFL;
+			if (length <= 0 || length > buffer.remaining()) {
+				return start;
+			}
+			ByteBuffer record = buffer.slice();
+			record.limit(length);
+			crc.reset();
+			crc.update(record.duplicate());
+			if (crc.getValue() != expected) {
+				return start;
+			}
+			apply(record, catalog);
+			buffer.position(buffer.position() + length);
+		}
+		return buffer.position();
+	}
+
+	/**
+	 * Applies one record to the catalog.
+	 */
+	private static void apply(ByteBuffer record, LibraryCatalog catalog) {
+		byte op = record.get();
+		int id = record.getInt();
+		switch (op) {
+		case ADD:
+			catalog.replayAdd(id, readString(record), readString(record), readString(record));
+			break;
+		case REMOVE:
+			catalog.replayRemove(id);
+			break;
+		case CHECK_OUT:
+			catalog.replayCheckOut(id, record.getInt());
+			break;
+		case RETURN:
+			catalog.replayReturn(id);
+			break;
+		default:
+			throw new IllegalStateException("Unknown log record type " + op);
+		}
+	}
+
+	/**
+	 * Appends a record for a book being added. It is not on disk until awaitDurable returns for its sequence number.
+	 * @return Sequence number of the record.
+	 */
+	long appendAdd(int id, String title, String author, String genre) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(ADD);
+			out.writeInt(id);
+			writeString(out, title);
+			writeString(out, author);
+			writeString(out, genre);
+		} catch (IOException e) {
+			// Writing to a byte array doesn't fail
+			throw new UncheckedIOException(e);
+		}
+		return append(bytes.toByteArray());
+	}
+
+	/**
+	 * Appends a record for a book being removed, checked out (with the epoch day it was checked out) or returned.
+	 * @param op REMOVE, CHECK_OUT or RETURN.
+	 * @return Sequence number of the record.
+	 */
+	long append(byte op, int id, int day) {
+		byte[] record = new byte[op == CHECK_OUT ? 9 : 5];
+		ByteBuffer buffer = ByteBuffer.wrap(record);
+		buffer.put(op).putInt(id);
+		if (op == CHECK_OUT) {
+			buffer.putInt(day);
+		}
+		return append(record);
+	}
+
+	/**
+	 * Adds the framed record to the pending batch.
+	 */
+	private synchronized long append(byte[] record) {
+		CRC32 crc = new CRC32();
+		crc.update(record);
+		int needed = pendingLength + 8 + record.length;
+		if (needed > pending.length) {
+			byte[] bigger = new byte[Math.max(needed, pending.length * 2)];
+			System.arraycopy(pending, 0, bigger, 0, pendingLength);
+			pending = bigger;
+		}
+		ByteBuffer.wrap(pending, pendingLength, 8).putInt(record.length).putInt((int) crc.getValue());
+		System.arraycopy(record, 0, pending, pendingLength + 8, record.length);
+		pendingLength = needed;
+		return ++appended;
+	}
+
+	/**
+	 * Fails if an earlier batch could not be written. The catalog checks this before it makes a change, so once the log
+	 * has failed no more changes are made that the log can't hold.
+	 * @throws UncheckedIOException If the log is no longer writable.
+	 */
+	void checkWritable() {
+		IOException error = failure;
+		if (error != null) {
+			throw new UncheckedIOException("Mutation log is no longer writable", error);
+		}
+	}
+
+	/**
+	 * Waits until the record with the given sequence number is on disk. If no other thread is writing, this thread
+	 * writes and syncs the whole pending batch.
+	 * @param sequence Sequence number returned when the record was appended.
+	 * @throws UncheckedIOException If the batch could not be written.
+	 */
+	void awaitDurable(long sequence) {
+		while (true) {
+			byte[] batch;
+			int length;
+			long target;
+			FileChannel file;
+			synchronized (this) {
+				while (true) {
+					if (failure != null) {
+						throw new UncheckedIOException("Mutation log is no longer writable", failure);
+					}
+					if (durable >= sequence) {
+						return;
+					}
+					if (!flushing) {
+						break;
+					}
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new UncheckedIOException(new IOException("Interrupted while waiting for the mutation log", e));
+					}
+				}
+				// Become the writer of everything appended so far
+				flushing = true;
+				batch = pending;
+				length = pendingLength;
+				target = appended;
+				file = channel;
+				pending = spare;
+				pendingLength = 0;
+			}
+			IOException error = null;
+			try {
+				ByteBuffer buffer = ByteBuffer.wrap(batch, 0, length);
+				while (buffer.hasRemaining()) {
+					file.write(buffer);
+				}
+				file.force(false);
+			} catch (IOException e) {
+				error = e;
+			}
+			synchronized (this) {
+				spare = batch;
+				flushing = false;
+				if (error != null) {
+					failure = error;
+				} else {
+					durable = target;
+				}
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Writes and syncs everything appended so far and returns where the file ends. Every record appended before this call
+	 * is before that position and every record appended after it follows it. A snapshot takes a mark before it reads the
+	 * catalog, and cuts the log there with truncate once it is written.
+	 * @return The position of the mark.
+	 * @throws IOException If an error occurs while writing the file.
+	 */
+	synchronized long mark() throws IOException {
+		awaitIdle();
+		if (pendingLength > 0) {
+			// Appenders wait for the monitor meanwhile, which keeps their records after the mark
+			try {
+				ByteBuffer buffer = ByteBuffer.wrap(pending, 0, pendingLength);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(false);
+			} catch (IOException e) {
+				failure = e;
+				notifyAll();
+				throw e;
+			}
+			pendingLength = 0;
+			durable = appended;
+			notifyAll();
+		}
+		return channel.position();
+	}
+
+	/**
+	 * Drops the records before a mark. Called once a snapshot holding every change logged before the mark is safely
+	 * written. The records after the mark are copied to a new file that then replaces the log, so a crash halfway through
+	 * leaves either the old log or the new one. Replaying a change the snapshot already holds does nothing.
+	 * @param mark A position returned by mark.
+	 * @throws IOException If an error occurs while writing the file.
+	 */
+	synchronized void truncate(long mark) throws IOException {
+		awaitIdle();
+		long end = channel.position();
+		ByteBuffer tail = ByteBuffer.allocate((int) (end - mark));
+		while (tail.hasRemaining() && channel.read(tail, mark + tail.position()) > 0) {
+		}
+		tail.flip();
+		Path target = Paths.get(path);
+		Path temp = Paths.get(path + ".tmp");
+		FileChannel replacement = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			while (tail.hasRemaining()) {
+				replacement.write(tail);
+			}
+			replacement.force(true);
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			replacement.close();
+			throw e;
+		}
+		channel.close();
+		channel = replacement;
+	}
+
+	/**
+	 * Waits until no batch is being written. Must be called holding the monitor.
+	 */
+	private void awaitIdle() throws IOException {
+		while (flushing) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for the mutation log", e);
+			}
+		}
+		if (failure != null) {
+			throw new IOException("Mutation log is no longer writable", failure);
+		}
+	}
+
+	/**
+	 * Writes whatever is pending and closes the file.
+	 * @throws IOException If an error occurs while writing or closing the file.
+	 */
+	void close() throws IOException {
+		long last;
+		synchronized (this) {
+			last = appended;
+		}
+		try {
+			awaitDurable(last);
+		} catch (UncheckedIOException e) {
+			channel.close();
+			throw e.getCause();
+		}
+		channel.close();
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer record) {
+		byte[] bytes = new byte[record.getInt()];
+		record.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,242 @@
+package main;
+
+import java.util.Arrays;
+
+import data_structures.ArrayList;
+import data_structures.IntArrayList;
+import data_structures.IntHashMap;
+import interfaces.List;
+
+/**
+ * This class keeps the checked out books of a catalog in buckets by the day they become overdue, which is the day of
+ * the checkout plus the loan days. A book is late from that day on, so finding the books that become overdue on a day is
+ * one bucket lookup, and finding every book overdue as of a day walks the buckets up to that day in order. Both cost as
+ * much as the books they return instead of a scan of the whole catalog.
+ *
+ * The catalog tells the index every time a book is checked out, returned or removed. Only the book the ID index holds
+ * for each ID is tracked.
+ *
+ * The books are split by ID over stripes with buckets of their own, picked the same way as the stripe locks of the
+ * catalog, so checkouts and returns of different books rarely wait for each other. Queries visit every stripe.
+ */
+class OverdueIndex {
+	// Books that become overdue on one day. Removing a book moves the last one into its place.
+	private static class Bucket {
+		private Book[] books = new Book[4];
+		private int size;
+	}
+
+	// Where a tracked book is: its due day and position in that day's bucket
+	private static class Entry {
+		private final int dueDay;
+		private int position;
+
+		Entry(int dueDay, int position) {
+			this.dueDay = dueDay;
+			this.position = position;
+		}
+	}
+
+	// Books are split over the stripes by ID, each guarded by itself
+	private final Stripe[] stripes;
+
+	/**
+	 * Creates an empty index.
+	 * @param expectedBooks About how many books will be checked out at once.
+	 * @param stripes How many stripes to split the books over, a power of two. A catalog used from one thread needs one.
+	 */
+	OverdueIndex(int expectedBooks, int stripes) {
+		this.stripes = new Stripe[stripes];
+		for (int i = 0; i < stripes; i++) {
+			this.stripes[i] = new Stripe(expectedBooks / stripes);
+		}
+	}
+
+	/**
+	 * Moves a book to the bucket of its current checkout, or drops it if it is not checked out anymore.
+	 * @param book The book that was checked out or returned.
+	 */
+	void bookChanged(Book book) {
+		Stripe stripe = stripeOf(book.getId());
+		synchronized (stripe) {
+			stripe.remove(book.getId());
+			long day = book.getCheckedOutDay();
+			if (day != Long.MIN_VALUE) {
+				stripe.add(book, (int) (day + Book.LOAN_DAYS));
+			}
+		}
+	}
+
+	/**
+	 * Stops tracking a book that was removed from the catalog.
+	 * @param book The removed book.
+	 */
+	void bookRemoved(Book book) {
+		Stripe stripe = stripeOf(book.getId());
+		synchronized (stripe) {
+			stripe.remove(book.getId());
+		}
+	}
+
+	/**
+	 * Gets the books whose first day with fees is the given day.
+	 * @param epochDay The day, as returned by LocalDate.toEpochDay().
+	 * @return The books that become overdue that day.
+	 */
+	List<Book> becameOverdue(long epochDay) {
+		List<Book> result = new ArrayList<>();
+		if (epochDay != (int) epochDay) {
+			return result;
+		}
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				Bucket bucket = stripe.buckets.get((int) epochDay);
+				if (bucket != null) {
+					for (int i = 0; i < bucket.size; i++) {
+						result.add(bucket.books[i]);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets every book that owes fees as of the given day, the ones that have been late the longest first. With more than
+	 * one stripe, the books of every stripe are gathered and then sorted by their due day.
+	 * @param epochDay The day, as returned by LocalDate.toEpochDay().
+	 * @return The overdue books.
+	 */
+	List<Book> overdue(long epochDay) {
+		if (stripes.length == 1) {
+			List<Book> result = new ArrayList<>();
+			synchronized (stripes[0]) {
+				stripes[0].gather(epochDay, result, null);
+			}
+			return result;
+		}
+		List<Book> found = new ArrayList<>();
+		IntArrayList dueDays = new IntArrayList();
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				stripe.gather(epochDay, found, dueDays);
+			}
+		}
+		// Sort by due day, then by the order the books were found in
+		long[] keys = new long[found.size()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = ((long) dueDays.get(i) << 32) | i;
+		}
+		Arrays.sort(keys);
+		List<Book> result = new ArrayList<>(Math.max(keys.length, 1));
+		for (long key : keys) {
+			result.add(found.get((int) key));
+		}
+		return result;
+	}
+
+	private Stripe stripeOf(int id) {
+		int h = id * 0x9E3779B9;
+		return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+	}
+
+	/**
+	 * The buckets of the books whose ID falls in one stripe.
+	 */
+	private static class Stripe {
+		private final IntHashMap<Bucket> buckets = new IntHashMap<>();
+		private final IntHashMap<Entry> entries;
+		// Due days that have a bucket, in increasing order
+		private int[] days = new int[16];
+		private int dayCount;
+
+		Stripe(int expectedBooks) {
+			entries = new IntHashMap<>(expectedBooks);
+		}
+
+		/**
+		 * Adds the books due up to a day to found in due day order, and their due days to dueDays if it isn't null.
+		 */
+		private void gather(long epochDay, List<Book> found, IntArrayList dueDays) {
+			for (int i = 0; i < dayCount && days[i] <= epochDay; i++) {
+				Bucket bucket = buckets.get(days[i]);
+				for (int j = 0; j < bucket.size; j++) {
+					found.add(bucket.books[j]);
+					if (dueDays != null) {
+						dueDays.add(days[i]);
+					}
+				}
+			}
+		}
+
+		private void add(Book book, int dueDay) {
+			Bucket bucket = buckets.get(dueDay);
+			if (bucket == null) {
+				bucket = new Bucket();
+				buckets.put(dueDay, bucket);
+				insertDay(dueDay);
+			}
+			if (bucket.size == bucket.books.length) {
+				Book[] bigger = new Book[bucket.size * 2];
+				System.arraycopy(bucket.books, 0, bigger, 0, bucket.size);
+				bucket.books = bigger;
+			}
+			entries.put(book.getId(), new Entry(dueDay, bucket.size));
+			bucket.books[bucket.size++] = book;
+		}
+
+		private void remove(int id) {
+			Entry entry = entries.remove(id);
+			if (entry == null) {
+				return;
+			}
+			Bucket bucket = buckets.get(entry.dueDay);
+			int last = --bucket.size;
+			if (entry.position != last) {
+				Book moved = bucket.books[last];
+				bucket.books[entry.position] = moved;
+				entries.get(moved.getId()).position = entry.position;
+			}
+			bucket.books[last] = null;
+			if (bucket.size == 0) {
+				buckets.remove(entry.dueDay);
+				removeDay(entry.dueDay);
+			}
+		}
+
+		private void insertDay(int day) {
+			int i = find(day);
+			if (dayCount == days.length) {
+				int[] bigger = new int[days.length * 2];
+				System.arraycopy(days, 0, bigger, 0, dayCount);
+				days = bigger;
+			}
+			System.arraycopy(days, i, days, i + 1, dayCount - i);
+			days[i] = day;
+			dayCount++;
+		}
+
+		private void removeDay(int day) {
+			int i = find(day);
+			System.arraycopy(days, i + 1, days, i, dayCount - i - 1);
+			dayCount--;
+		}
+
+		/**
+		 * Binary search for the position of day, or where it would be inserted.
+		 */
+		private int find(int day) {
+			int low = 0;
+			int high = dayCount;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (days[mid] < day) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+}
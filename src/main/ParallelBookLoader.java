@@ -0,0 +1,179 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import data_structures.ArrayList;
+import data_structures.StringDictionary;
+import interfaces.List;
+
+/**
+ * This class loads a books file on several threads. The file is split at line boundaries into chunks, each chunk is
+ * memory-mapped and parsed by its own fork-join task, and the partial lists are joined back in file order, so the result
+ * is the same list a single-threaded load gives. Since every chunk is mapped on its own, files larger than 2GB work too.
+ *
+ * Each chunk codes its authors and genres in dictionaries of its own, so the threads never wait on a shared one. When the
+ * chunks are joined, the codes of each chunk's dictionaries are merged into the catalog's and its books are moved over,
+ * which looks up each distinct author and genre of a chunk once instead of once per book.
+ *
+ * Chunks are cut at line breaks without knowing whether the break is inside a quoted field. If a chunk finds a quoted
+ * field with a line break, a cut may have split a row, so the chunks are dropped and the file is read again on one
+ * thread. Chunks are only dropped once every chunk before them parsed without finding one, so an error in a chunk is
+ * only thrown when a single-threaded load would have thrown it too.
+ */
+class ParallelBookLoader {
+	// Chunks per thread, so a thread that finishes early can pick up more work
+	private static final int CHUNKS_PER_THREAD = 4;
+	// Largest chunk that can be mapped as a single buffer
+	private static final long MAX_CHUNK = 1L << 30;
+
+	private final String path;
+	private final int threads;
+
+	/**
+	 * Creates a loader for a books file.
+	 * @param path The path of the books file.
+	 * @param threads How many threads to parse with. 0 uses the common fork-join pool.
+	 */
+	ParallelBookLoader(String path, int threads) {
+		this.path = path;
+		this.threads = threads;
+	}
+
+	/**
+	 * Reads the books file.
+	 * @param authors The author dictionary of the catalog.
+	 * @param genres The genre dictionary of the catalog.
+	 * @return List of books in the same order as in the file, encoded with the catalog's dictionaries.
+	 * @throws IOException If an error occurs while reading the file.
+	 */
+	List<Book> load(StringDictionary authors, StringDictionary genres) throws IOException {
+		ForkJoinPool pool = threads > 0 ? new ForkJoinPool(threads) : ForkJoinPool.commonPool();
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			long[] bounds = split(channel, pool.getParallelism() * CHUNKS_PER_THREAD);
+			List<ForkJoinTask<Part>> tasks = new ArrayList<>(bounds.length);
+			for (int i = 0; i + 1 < bounds.length; i++) {
+				ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i]);
+				tasks.add(pool.submit(() -> new Part(new CsvCursor(chunk))));
+			}
+			// Join in file order so the books keep their order
+			List<Part> parts = new ArrayList<>(tasks.size());
+			int total = 0;
+			for (ForkJoinTask<Part> task : tasks) {
+				Part part = task.join();
+				if (part.quotedLineBreak) {
+					// This chunk may end in the middle of a row and the next ones may start in one
+					return loadSequentially(authors, genres);
+				}
+				if (part.failure != null) {
+					throw part.failure;
+				}
+				parts.add(part);
+				total += part.books.size();
+			}
+			List<Book> books = new ArrayList<>(Math.max(total, 1));
+			for (Part part : parts) {
+				int[] authorCodes = part.authors.mergeInto(authors);
+				int[] genreCodes = part.genres.mergeInto(genres);
+				for (Book book : part.books) {
+					book.recode(authorCodes, authors, genreCodes, genres);
+				}
+				books.addAll(part.books);
+			}
+			return books;
+		} finally {
+			if (pool != ForkJoinPool.commonPool()) {
+				pool.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Reads the whole books file on the calling thread, for files whose rows can't be split at line breaks.
+	 */
+	private List<Book> loadSequentially(StringDictionary authors, StringDictionary genres) throws IOException {
+		CsvCursor csv = CsvCursor.open(path);
+		// Skip the header
+		csv.endRow();
+		return LibraryCatalog.parseBooks(csv, authors, genres);
+	}
+
+	/**
+	 * The books of one chunk, with the dictionaries they are encoded with. A chunk that doesn't parse keeps the error
+	 * instead of the books, since it may only be a row cut in two (see quotedLineBreak).
+	 */
+	private static final class Part {
+		private final StringDictionary authors = new StringDictionary();
+		private final StringDictionary genres = new StringDictionary();
+		private List<Book> books;
+		private RuntimeException failure;
+		// Whether a quoted field of the chunk held a line break
+		private final boolean quotedLineBreak;
+
+		Part(CsvCursor csv) {
+			try {
+				books = LibraryCatalog.parseBooks(csv, authors, genres);
+			} catch (RuntimeException e) {
+				failure = e;
+			}
+			quotedLineBreak = csv.hasQuotedLineBreak();
+		}
+	}
+
+	/**
+	 * Finds where each chunk starts. The first chunk starts after the header line and every other chunk starts at the
+	 * beginning of a line.
+	 * @param chunks How many chunks to aim for.
+	 * @return Start of each chunk followed by the end of the file.
+	 */
+	private static long[] split(FileChannel channel, int chunks) throws IOException {
+		long size = channel.size();
+		long start = nextLineStart(channel, 0);
+		chunks = (int) Math.max(chunks, (size - start) / MAX_CHUNK + 1);
+		long[] bounds = new long[chunks + 1];
+		bounds[0] = start;
+		int count = 1;
+		for (int i = 1; i < chunks; i++) {
+			long bound = nextLineStart(channel, start + (size - start) * i / chunks);
+			// A very long line can swallow a whole chunk, skip empty ones
+			if (bound > bounds[count - 1] && bound < size) {
+				bounds[count++] = bound;
+			}
+		}
+		bounds[count++] = size;
+		long[] result = new long[count];
+		System.arraycopy(bounds, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 * Finds the first line that starts at or after position.
+	 * @return Position of the start of that line, or the size of the file if there is none.
+	 */
+	private static long nextLineStart(FileChannel channel, long position) throws IOException {
+		if (position == 0) {
+			// Position 0 is the header, the data starts after it
+			position = 1;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		long offset = position - 1;
+		while (true) {
+			buffer.clear();
+			int read = channel.read(buffer, offset);
+			if (read <= 0) {
+				return channel.size();
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return offset + i + 1;
+				}
+			}
+			offset += read;
+		}
+	}
+}
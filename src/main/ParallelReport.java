@@ -0,0 +1,89 @@
+package main;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import data_structures.ArrayList;
+import interfaces.List;
+
+/**
+ * This class writes the checked out section of the report on several threads. The books are split into chunks of
+ * consecutive positions, each chunk is formatted by its own fork-join task, and the chunks are written in order, so the
+ * output is the same as writing the section on one thread.
+ *
+ * Only a few chunks per thread are in flight at a time, so the section is still streamed instead of being held in
+ * memory as a whole, unless the report itself is rendered into memory (see LibraryCatalog.writeReport).
+ */
+class ParallelReport {
+	// Books per chunk
+	private static final int CHUNK = 16_384;
+	// Chunks being formatted at once, per thread of the pool
+	private static final int CHUNKS_PER_THREAD = 2;
+
+	private ParallelReport() {
+	}
+
+	// The lines of one chunk and how many there are
+	private static class Part {
+		private final StringBuilder text = new StringBuilder();
+		private int count;
+	}
+
+	/**
+	 * Writes the line of every book that is checked out, in the order of the list.
+	 * @param books The books of the catalog.
+	 * @param pool The pool that formats the chunks.
+	 * @param out Where to write the lines.
+	 * @return How many books are checked out.
+	 * @throws IOException If an error occurs while writing.
+	 */
+	static int writeCheckedOut(List<Book> books, ForkJoinPool pool, Writer out) throws IOException {
+		Book[] array = toArray(books);
+		int window = Math.max(1, pool.getParallelism() * CHUNKS_PER_THREAD);
+		// Chunk tasks in the order they must be written
+		List<ForkJoinTask<Part>> inFlight = new ArrayList<>(window);
+		int next = 0;
+		int count = 0;
+		while (next < array.length || !inFlight.isEmpty()) {
+			while (next < array.length && inFlight.size() < window) {
+				int from = next;
+				int to = Math.min(array.length, from + CHUNK);
+				inFlight.add(pool.submit(() -> format(array, from, to)));
+				next = to;
+			}
+			Part part = inFlight.first().join();
+			inFlight.remove(0);
+			out.append(part.text);
+			count += part.count;
+		}
+		return count;
+	}
+
+	/**
+	 * Formats the checked out books between two positions.
+	 */
+	private static Part format(Book[] books, int from, int to) {
+		Part part = new Part();
+		for (int i = from; i < to; i++) {
+			if (books[i].isCheckedOut()) {
+				part.text.append(books[i].toString()).append('\n');
+				part.count++;
+			}
+		}
+		return part;
+	}
+
+	/**
+	 * Copies the books into an array so chunks can be reached by position whatever kind of list holds them.
+	 */
+	private static Book[] toArray(List<Book> books) {
+		Book[] array = new Book[books.size()];
+		int i = 0;
+		for (Book book : books) {
+			array[i++] = book;
+		}
+		return array;
+	}
+}
@@ -0,0 +1,71 @@
+package main;
+
+/**
+ * This class keeps the rendered sections of the last report, each one with the version of the catalog it was rendered
+ * from. The catalog counts its changes in two versions: one for books added and removed, one for books checked out and
+ * returned. A section is rendered again only when a version it depends on has moved since it was cached.
+ *
+ * It also remembers the versions the report file was last written with, so an unchanged report isn't written again.
+ */
+class ReportCache {
+	static final int SUMMARY = 0;
+	static final int CHECKED_OUT = 1;
+	static final int FEES = 2;
+
+	private final String[] texts = new String[3];
+	private final long[] versions = new long[3];
+	private final long[] days = new long[3];
+	// Versions the report file was last written with, valid only if fileWritten is set
+	private boolean fileWritten;
+	private long fileVersion;
+	private long fileDay;
+
+	/**
+	 * Gets a section if it was cached for the given version and day.
+	 * @param section SUMMARY, CHECKED_OUT or FEES.
+	 * @param version Version of what the section depends on.
+	 * @param day Day fees are calculated for, or 0 if the section doesn't depend on it.
+	 * @return The text of the section, or null if it has to be rendered again.
+	 */
+	synchronized String get(int section, long version, long day) {
+		if (texts[section] != null && versions[section] == version && days[section] == day) {
+			return texts[section];
+		}
+		return null;
+	}
+
+	/**
+	 * Caches a section. The version must have been read before the section was rendered, so a change made while it was
+	 * being rendered makes the next report render it again.
+	 * @param section SUMMARY, CHECKED_OUT or FEES.
+	 * @param version Version of what the section depends on.
+	 * @param day Day fees are calculated for, or 0 if the section doesn't depend on it.
+	 * @param text The rendered section.
+	 */
+	synchronized void put(int section, long version, long day, String text) {
+		texts[section] = text;
+		versions[section] = version;
+		days[section] = day;
+	}
+
+	/**
+	 * Checks if the report file was last written from the same version and day.
+	 * @param version Version of the whole catalog.
+	 * @param day Day fees are calculated for.
+	 * @return True if the file already holds this report.
+	 */
+	synchronized boolean isFileCurrent(long version, long day) {
+		return fileWritten && fileVersion == version && fileDay == day;
+	}
+
+	/**
+	 * Records the version and day the report file was written from.
+	 * @param version Version of the whole catalog, read before the report was rendered.
+	 * @param day Day fees are calculated for.
+	 */
+	synchronized void fileWritten(long version, long day) {
+		fileWritten = true;
+		fileVersion = version;
+		fileDay = day;
+	}
+}
@@ -0,0 +1,52 @@
+package main;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * This class writes everything it receives to two writers, for example a report file and the console.
+ * Closing it does not close either of them.
+ */
+class TeeWriter extends Writer {
+	private final Writer first;
+	private final Writer second;
+
+	/**
+	 * Creates a writer that copies its output to first and second.
+	 * @param first The first writer.
+	 * @param second The second writer.
+	 */
+	TeeWriter(Writer first, Writer second) {
+		this.first = first;
+		this.second = second;
+	}
+
+	@Override
+	public void write(char[] buffer, int offset, int length) throws IOException {
+		first.write(buffer, offset, length);
+		second.write(buffer, offset, length);
+	}
+
+	@Override
+	public void write(String str, int offset, int length) throws IOException {
+		first.write(str, offset, length);
+		second.write(str, offset, length);
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		first.write(c);
+		second.write(c);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		first.flush();
+		second.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		flush();
+	}
+}
@@ -1,15 +1,31 @@
 package main;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import data_structures.ArrayList;
+import data_structures.IntArrayList;
 import interfaces.List;
 
 /**
  * This class implements a user with unique ID, name, and which books they have checked out.
  * It also calculates if they have any late fees.
+ * 
+ * The checked out books are stored as their IDs in an int list, and are looked up by ID only when they are needed,
+ * usually through the ID index of the catalog. A user holding nothing shares an empty array with every other such user.
+ * Setting the books of a user is counted (see directChanges), so a catalog holding the user can tell and catch up.
  */
 public class User {
+	// Lookup used until books are set, it finds nothing
+	private static final IntFunction<Book> NO_BOOKS = id -> null;
+	// Times the books of any user were set
+	private static final AtomicLong DIRECT_CHANGES = new AtomicLong();
+	
 	private int id;
 	private String name;
-	private List<Book> checkedOutList;
+	private IntArrayList checkedOutIds = new IntArrayList();
+	// Finds a checked out book by its ID, or returns null if there is no such book
+	private IntFunction<Book> bookLookup = NO_BOOKS;
 	
 	/**
 	 * gets the ID of the user.
@@ -44,10 +60,17 @@ public class User {
 	}
 
 	/**
-	 * Returns the list of books checked out by the user.
+	 * Returns the list of books checked out by the user. The list is built from the IDs each time, so changing it
+	 * doesn't change the user. IDs the lookup can't find, such as books that were never in the catalog, are left out.
 	 * @return List of books checked out by the user.
 	 */
 	public List<Book> getCheckedOutList() {
+		List<Book> checkedOutList = new ArrayList<>(Math.max(checkedOutIds.size(), 1));
+		for (int i = 0; i < checkedOutIds.size(); i++) {
+			Book book = bookLookup.apply(checkedOutIds.get(i));
+			if (book != null)
+				checkedOutList.add(book);
+		}
 		return checkedOutList;
 	}
 
@@ -56,19 +79,91 @@ public class User {
 	 * @param checkedOutList of books to set for the user.
 	 */
 	public void setCheckedOutList(List<Book> checkedOutList) {
-		this.checkedOutList = checkedOutList;
+		IntArrayList ids = new IntArrayList(checkedOutList.size());
+		Book[] held = new Book[checkedOutList.size()];
+		int i = 0;
+		for (Book book : checkedOutList) {
+			ids.add(book.getId());
+			held[i++] = book;
+		}
+		// These books may not be in any catalog, so look them up among themselves
+		setCheckedOutIds(ids, bookId -> {
+			for (Book book : held) {
+				if (book.getId() == bookId)
+					return book;
+			}
+			return null;
+		});
 	}
 	
 	/**
-	 * Calculates the late fees owed by the user.
+	 * Returns the IDs of the books checked out by the user. A catalog doesn't see changes made to the list directly,
+	 * set it again with setCheckedOutIds after changing it.
+	 * @return IDs of the books checked out by the user.
+	 */
+	public IntArrayList getCheckedOutIds() {
+		return checkedOutIds;
+	}
+	
+	/**
+	 * Sets the IDs of the books checked out by the user and how to find a book by its ID.
+	 * @param checkedOutIds IDs of the books checked out by the user.
+	 * @param bookLookup Finds a book by ID, returning null if there is no such book.
+	 */
+	public void setCheckedOutIds(IntArrayList checkedOutIds, IntFunction<Book> bookLookup) {
+		this.checkedOutIds = checkedOutIds;
+		this.bookLookup = bookLookup;
+		DIRECT_CHANGES.incrementAndGet();
+	}
+	
+	/**
+	 * Counts the times the books of any user were set. A catalog that saw the count move knows its figures may be out
+	 * of date.
+	 * @return The number of times so far.
+	 */
+	static long directChanges() {
+		return DIRECT_CHANGES.get();
+	}
+	
+	/**
+	 * Gets how many book IDs the user holds, including any the lookup can't find.
+	 * @return Number of checked out book IDs.
+	 */
+	int getCheckedOutCount() {
+		return checkedOutIds.size();
+	}
+	
+	/**
+	 * Looks up the checked out book at a position without building the whole list.
+	 * @param index Position of the book ID.
+	 * @return The book, or null if the lookup can't find it.
+	 */
+	Book getCheckedOutBook(int index) {
+		return bookLookup.apply(checkedOutIds.get(index));
+	}
+	
+	/**
+	 * Calculates the late fees owed by the user as of September 15, 2023.
+	 * The day is fixed, so it disagrees with the reports of a catalog that has a clock. For those, use
+	 * calculateTotalFees(catalog.getFeeDate().toEpochDay()).
 	 * @return fees owed by the user.
 	 */
 	public float calculateTotalFees() {
+		return calculateTotalFees(Book.FEE_DATE.toEpochDay());
+	}
+	
+	/**
+	 * Calculates the late fees owed by the user as of a given day.
+	 * @param asOfDay The day fees are calculated for, as returned by LocalDate.toEpochDay().
+	 * @return fees owed by the user.
+	 */
+	public float calculateTotalFees(long asOfDay) {
 		float fees = 0;
-		for (Book book : checkedOutList) {
-			if (book.isCheckedOut() && book.calculateFees()>0) {
-				fees+=book.calculateFees();
-			}
+		for (int i = 0; i < checkedOutIds.size(); i++) {
+			Book book = getCheckedOutBook(i);
+			// calculateFees is 0 for books that aren't checked out
+			if (book != null)
+				fees+=book.calculateFees(asOfDay);
 		}
 		return fees;
 	}
@@ -0,0 +1,94 @@
+package tester;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDate;
+
+import org.junit.Test;
+
+import interfaces.List;
+import main.Book;
+import main.CatalogOptions;
+import main.LibraryCatalog;
+import main.User;
+
+/*
+ * Tests that a columnar catalog, which keeps its books in columns and hands out views of them,
+ * behaves the same as a catalog holding one object per book.
+ */
+public class ColumnarTester {
+
+	@Test
+	public void testSameAsObjects() throws IOException {
+		for (boolean concurrent : new boolean[] {false, true}) {
+			LibraryCatalog objects = new LibraryCatalog();
+			CatalogOptions options = new CatalogOptions();
+			options.setColumnar(true);
+			options.setConcurrent(concurrent);
+			LibraryCatalog columns = new LibraryCatalog(options);
+			checkSame(objects, columns, "loading");
+
+			for (int id : new int[] {1, 2, 3, 99}) {
+				assertTrue("A checkout gave a different result in columns", objects.checkOutBook(id) == columns.checkOutBook(id));
+			}
+			checkSame(objects, columns, "checkouts");
+			for (int id : new int[] {2, 4, 4, 99}) {
+				assertTrue("A return gave a different result in columns", objects.returnBook(id) == columns.returnBook(id));
+			}
+			checkSame(objects, columns, "returns");
+			objects.removeBook(5);
+			columns.removeBook(5);
+			objects.removeBook(6);
+			columns.removeBook(6);
+			objects.addBook("Columnar Test", "Tester", "Horror");
+			columns.addBook("Columnar Test", "Tester", "Horror");
+			checkSame(objects, columns, "removals");
+			assertTrue("A removed book was found in columns", columns.searchForBook(b -> b.getId() == 5).isEmpty());
+			assertTrue("A removed book could be checked out in columns", !columns.checkOutBook(5));
+			columns.close();
+		}
+	}
+
+	/*
+	 * Helper methods
+	 */
+	private void checkSame(LibraryCatalog objects, LibraryCatalog columns, String after) throws IOException {
+		assertTrue("The report of a columnar catalog differs after " + after, report(columns).equals(report(objects)));
+		assertTrue("The books of a columnar catalog differ after " + after,
+				describe(columns.getBookCatalog()).equals(describe(objects.getBookCatalog())));
+		assertTrue("Searching a columnar catalog by author gave different books after " + after,
+				describe(columns.searchForBook(b -> b.getAuthor().contains("Tolkien")))
+						.equals(describe(objects.searchForBook(b -> b.getAuthor().contains("Tolkien")))));
+		assertTrue("Searching a columnar catalog by genre gave different books after " + after,
+				describe(columns.searchByGenre("mystery")).equals(describe(objects.searchByGenre("mystery"))));
+		assertTrue("Counting titles in a columnar catalog differs after " + after,
+				columns.bookCount("The Hobbit") == objects.bookCount("The Hobbit"));
+		for (int id = 1; id <= 52; id++) {
+			assertTrue("The availability of book " + id + " in a columnar catalog differs after " + after,
+					columns.getBookAvailability(id) == objects.getBookAvailability(id));
+		}
+		LocalDate day = LocalDate.of(2023, 9, 15);
+		assertTrue("The overdue books of a columnar catalog differ after " + after,
+				describe(columns.getOverdueBooks(day)).equals(describe(objects.getOverdueBooks(day))));
+		for (int i = 0; i < objects.getUsers().size(); i++) {
+			User user = objects.getUsers().get(i);
+			assertTrue("The books of " + user.getName() + " in a columnar catalog differ after " + after,
+					describe(columns.getUsers().get(i).getCheckedOutList()).equals(describe(user.getCheckedOutList())));
+		}
+	}
+	private String describe(List<Book> books) {
+		StringBuilder text = new StringBuilder();
+		for (Book book : books) {
+			text.append(book.getId()).append(' ').append(book).append(' ').append(book.getGenre()).append(' ')
+					.append(book.isCheckedOut()).append(' ').append(book.getLastCheckOut()).append('\n');
+		}
+		return text.toString();
+	}
+	private String report(LibraryCatalog catalog) throws IOException {
+		StringWriter out = new StringWriter();
+		catalog.writeReport(out);
+		return out.toString();
+	}
+}
@@ -0,0 +1,194 @@
+package tester;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import interfaces.List;
+import main.Book;
+import main.CatalogOptions;
+import main.LibraryCatalog;
+import main.User;
+
+/*
+ * Tests a catalog in concurrent mode, with several threads changing and reading it at the same
+ * time. Each test has a timeout, so a deadlock fails the test instead of hanging it.
+ */
+public class ConcurrencyTester {
+
+	LibraryCatalog LC;
+
+	@Before
+	public void setup() throws IOException {
+		CatalogOptions options = new CatalogOptions();
+		options.setConcurrent(true);
+		LC = new LibraryCatalog(options);
+	}
+	@Test(timeout = 30000)
+	public void testConcurrentRemoveBook() throws Exception {
+		long day = LC.getFeeDate().toEpochDay();
+		float feesBefore = totalFees(LC.getUsers(), day);
+		int heldBefore = heldBooks(LC.getUsers());
+		AtomicBoolean stop = new AtomicBoolean();
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		// Readers look the users' books up while the books are removed
+		Thread[] readers = new Thread[3];
+		for (int t = 0; t < readers.length; t++) {
+			readers[t] = new Thread(() -> {
+				try {
+					while (!stop.get()) {
+						totalFees(LC.getUsers(), day);
+						LC.checkOutBook(1);
+						LC.returnBook(1);
+						LC.generateReport(false);
+					}
+				} catch (Throwable e) {
+					error.compareAndSet(null, e);
+				}
+			});
+			readers[t].start();
+		}
+		Thread[] removers = new Thread[2];
+		for (int t = 0; t < removers.length; t++) {
+			int first = 2 + t;
+			removers[t] = new Thread(() -> {
+				for (int id = first; id <= 50; id += removers.length)
+					LC.removeBook(id);
+			});
+			removers[t].start();
+		}
+		for (Thread remover : removers)
+			remover.join();
+		stop.set(true);
+		for (Thread reader : readers)
+			reader.join();
+		if (error.get() != null)
+			fail("A reader failed while books were removed: " + error.get());
+
+		assertTrue("Failed to remove every book", LC.getBookCatalog().size() == 1);
+		assertTrue("Removing books changed the books users hold", heldBooks(LC.getUsers()) == heldBefore);
+		assertTrue("Removing books changed the fees users owe", totalFees(LC.getUsers(), day) == feesBefore);
+	}
+
+	@Test(timeout = 30000)
+	public void testConcurrentCheckouts() throws Exception {
+		CatalogOptions options = new CatalogOptions();
+		options.setConcurrent(true);
+		options.setClock(Clock.fixed(LocalDate.of(2023, 12, 1).atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC));
+		LibraryCatalog catalog = new LibraryCatalog(options);
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		// Each thread checks out and returns books of its own, so every change succeeds
+		Thread[] workers = new Thread[4];
+		for (int t = 0; t < workers.length; t++) {
+			int first = 1 + t;
+			workers[t] = new Thread(() -> {
+				try {
+					for (int round = 0; round < 200; round++) {
+						for (int id = first; id <= 50; id += workers.length) {
+							if (!catalog.returnBook(id) && !catalog.checkOutBook(id))
+								fail("Failed to check out or return book " + id);
+						}
+					}
+				} catch (Throwable e) {
+					error.compareAndSet(null, e);
+				}
+			});
+			workers[t].start();
+		}
+		for (Thread worker : workers)
+			worker.join();
+		if (error.get() != null)
+			fail("A checkout or return failed: " + error.get());
+
+		LocalDate later = LocalDate.of(2024, 6, 1);
+		List<Book> overdue = catalog.getOverdueBooks(later);
+		assertTrue("Overdue books don't match the books checked out", overdue.size() == checkedOutBooks(catalog));
+		long previous = Long.MIN_VALUE;
+		for (Book b : overdue) {
+			long day = b.getLastCheckOut().toEpochDay();
+			assertTrue("Overdue books are not ordered by checkout day", day >= previous);
+			previous = day;
+		}
+		// A catalog built from the same books and users works its fees out from scratch
+		LibraryCatalog rebuilt = new LibraryCatalog(catalog.getBookCatalog(), catalog.getUsers(), options);
+		assertTrue("Fees kept during the changes differ from fees worked out from scratch",
+				report(catalog).equals(report(rebuilt)));
+	}
+	@Test(timeout = 60000)
+	public void testCheckoutsDuringRemove() throws Exception {
+		CatalogOptions options = new CatalogOptions();
+		options.setConcurrent(true);
+		options.setClock(Clock.fixed(LocalDate.of(2023, 12, 1).atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC));
+		for (int round = 0; round < 20; round++) {
+			LibraryCatalog catalog = new LibraryCatalog(options);
+			AtomicBoolean stop = new AtomicBoolean();
+			// Workers keep checking out and returning every book while the books are removed
+			Thread[] workers = new Thread[4];
+			for (int t = 0; t < workers.length; t++) {
+				workers[t] = new Thread(() -> {
+					while (!stop.get()) {
+						for (int id = 2; id <= 50; id++) {
+							if (!catalog.returnBook(id))
+								catalog.checkOutBook(id);
+						}
+					}
+				});
+				workers[t].start();
+			}
+			for (int id = 2; id <= 50; id++)
+				catalog.removeBook(id);
+			stop.set(true);
+			for (Thread worker : workers)
+				worker.join();
+
+			assertTrue("Changed a book after it was removed", !catalog.checkOutBook(2) && !catalog.returnBook(2));
+			for (Book b : catalog.getOverdueBooks(LocalDate.of(2030, 1, 1))) {
+				if (b.getId() != 1)
+					fail("Book " + b.getId() + " is overdue after it was removed");
+			}
+		}
+	}
+
+	/*
+	 * Helper methods
+	 */
+	private float totalFees(List<User> users, long day) {
+		float total = 0;
+		for (User u : users)
+			total += u.calculateTotalFees(day);
+		return total;
+	}
+	private int checkedOutBooks(LibraryCatalog catalog) {
+		int checkedOut = 0;
+		for (Book b : catalog.getBookCatalog()) {
+			if (b.isCheckedOut())
+				checkedOut++;
+		}
+		return checkedOut;
+	}
+	private String report(LibraryCatalog catalog) throws IOException {
+		StringWriter out = new StringWriter();
+		catalog.writeReport(out);
+		return out.toString();
+	}
+	private int heldBooks(List<User> users) {
+		int held = 0;
+		for (User u : users) {
+			for (Book b : u.getCheckedOutList()) {
+				if (b != null)
+					held++;
+			}
+		}
+		return held;
+	}
+}
@@ -0,0 +1,217 @@
+package tester;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import interfaces.List;
+import main.Book;
+import main.CatalogOptions;
+import main.LibraryCatalog;
+import main.User;
+
+/*
+ * Tests the parsing of the data files with rows the sample files don't have: empty, blank,
+ * quoted and escaped fields, and the different ways of writing the checked out IDs.
+ */
+public class CsvParsingTester {
+	
+	File books;
+	File users;
+	
+	@Before
+	public void setup() throws IOException {
+		books = File.createTempFile("catalog", ".csv");
+		users = File.createTempFile("user", ".csv");
+	}
+	@After
+	public void cleanup() {
+		books.delete();
+		users.delete();
+	}
+	@Test
+	public void testEmptyAndBlankFields() throws IOException {
+		LibraryCatalog LC = load("ID,Title,Author,Genre,Last Checkout Date,Checked Out\n"
+				+ "1,,Author One,Mystery,2023-07-15,false\n"
+				+ "2,Title Two,   ,Classics,2022-09-28,true\n"
+				+ "3,  Padded Title  ,\tTabbed\t,Fiction,2023-01-01,TRUE\n",
+				"ID,Full Name,Books\n");
+		assertTrue("Failed to read an empty title as an empty String", findBookById(LC.getBookCatalog(), 1).getTitle().equals(""));
+		assertTrue("Failed to read a blank author as an empty String", findBookById(LC.getBookCatalog(), 2).getAuthor().equals(""));
+		assertTrue("Failed to trim the spaces around a title", findBookById(LC.getBookCatalog(), 3).getTitle().equals("Padded Title"));
+		assertTrue("Failed to trim the tabs around an author", findBookById(LC.getBookCatalog(), 3).getAuthor().equals("Tabbed"));
+		assertTrue("Failed to read the fields after an empty field",
+				findBookById(LC.getBookCatalog(), 1).getAuthor().equals("Author One") && findBookById(LC.getBookCatalog(), 1).getGenre().equals("Mystery"));
+		assertTrue("Failed to read TRUE ignoring case", findBookById(LC.getBookCatalog(), 3).isCheckedOut());
+		assertTrue("Failed to read the checkout date after a blank field",
+				findBookById(LC.getBookCatalog(), 2).getLastCheckOut().equals(LocalDate.of(2022, 9, 28)));
+	}
+	@Test
+	public void testQuotedFields() throws IOException {
+		LibraryCatalog LC = load("ID,Title,Author,Genre,Last Checkout Date,Checked Out\n"
+				+ "1,\"War, and Peace\",Leo Tolstoy,Classics,2023-07-15,false\n"
+				+ "2,\"The \"\"Quoted\"\" Book\",\"\",Fiction,2022-09-28,true\n"
+				+ "3,\"  Kept Spaces  \",Someone,Mystery,2023-01-01,false\n",
+				"ID,Full Name,Books\n");
+		assertTrue("Failed to keep a comma inside a quoted field", findBookById(LC.getBookCatalog(), 1).getTitle().equals("War, and Peace"));
+		assertTrue("Failed to read a doubled quote as a quote", findBookById(LC.getBookCatalog(), 2).getTitle().equals("The \"Quoted\" Book"));
+		assertTrue("Failed to read an empty quoted field", findBookById(LC.getBookCatalog(), 2).getAuthor().equals(""));
+		assertTrue("Failed to keep the spaces inside quotes", findBookById(LC.getBookCatalog(), 3).getTitle().equals("  Kept Spaces  "));
+		assertTrue("Failed to read the fields after a quoted field", findBookById(LC.getBookCatalog(), 1).getAuthor().equals("Leo Tolstoy"));
+	}
+	@Test
+	public void testLineEndsAndLastRow() throws IOException {
+		LibraryCatalog LC = load("ID,Title,Author,Genre,Last Checkout Date,Checked Out\r\n"
+				+ "1,Windows Line,Author,Mystery,2023-07-15,true\r\n"
+				+ "2,No Line Break,Author,Mystery,2023-07-15,false",
+				"ID,Full Name,Books\n");
+		assertTrue("Failed to read every row", LC.getBookCatalog().size() == 2);
+		assertTrue("Failed to read a value before \\r\\n", findBookById(LC.getBookCatalog(), 1).isCheckedOut());
+		assertTrue("Failed to read a last row without a line break", findBookById(LC.getBookCatalog(), 2).getTitle().equals("No Line Break"));
+	}
+	@Test
+	public void testCheckedOutIds() throws IOException {
+		LibraryCatalog LC = load("ID,Title,Author,Genre,Last Checkout Date,Checked Out\n"
+				+ "1,One,A,Mystery,2023-07-15,true\n"
+				+ "2,Two,A,Mystery,2023-07-15,true\n"
+				+ "3,Three,A,Mystery,2023-07-15,true\n",
+				"ID,Full Name,Books\n"
+				+ "1,Braces,{1 2 3}\n"
+				+ "2,Empty,\n"
+				+ "3,Empty Braces,{}\n"
+				+ "4,Commas,{1, 3}\n"
+				+ "5,Unknown,{9}\n");
+		assertTrue("Failed to read {1 2 3}", findUserById(LC.getUsers(), 1).getCheckedOutList().size() == 3);
+		assertTrue("Failed to read an empty field as no books", findUserById(LC.getUsers(), 2).getCheckedOutList().size() == 0);
+		assertTrue("Failed to read {} as no books", findUserById(LC.getUsers(), 3).getCheckedOutList().size() == 0);
+		assertTrue("Failed to read IDs separated by commas", findUserById(LC.getUsers(), 4).getCheckedOutList().size() == 2);
+		assertTrue("Failed to skip an ID that isn't in the catalog", findUserById(LC.getUsers(), 5).getCheckedOutList().size() == 0);
+	}
+	@Test
+	public void testNumberLimits() throws IOException {
+		LibraryCatalog LC = load("ID,Title,Author,Genre,Last Checkout Date,Checked Out\n"
+				+ "2147483647,Largest,A,Mystery,2023-07-15,true\n"
+				+ "-2147483648,Smallest,A,Mystery,2023-07-15,false\n",
+				"ID,Full Name,Books\n"
+				+ "1,Largest,{2147483647}\n");
+		assertTrue("Failed to read the largest int", findBookById(LC.getBookCatalog(), Integer.MAX_VALUE) != null);
+		assertTrue("Failed to read the smallest int", findBookById(LC.getBookCatalog(), Integer.MIN_VALUE) != null);
+		assertTrue("Failed to read the largest int as a checked out ID", findUserById(LC.getUsers(), 1).getCheckedOutList().size() == 1);
+		assertTrue("Read an ID past the largest int", rejected("ID,Title,Author,Genre,Last Checkout Date,Checked Out\n"
+				+ "2147483648,Too Large,A,Mystery,2023-07-15,false\n",
+				"ID,Full Name,Books\n"));
+		assertTrue("Read a checked out ID past the largest int", rejected("ID,Title,Author,Genre,Last Checkout Date,Checked Out\n",
+				"ID,Full Name,Books\n"
+				+ "1,Too Large,{99999999999}\n"));
+	}
+	@Test
+	public void testQuotedLineBreaksInParallel() throws IOException {
+		// Enough rows of different lengths that some chunk of a parallel load is cut inside a quoted field
+		StringBuilder rows = new StringBuilder("ID,Title,Author,Genre,Last Checkout Date,Checked Out\n");
+		for (int id = 1; id <= 500; id++) {
+			rows.append(id).append(",\"").append(title(id)).append("\",Author,Mystery,2023-07-15,false\n");
+		}
+		Files.write(books.toPath(), rows.toString().getBytes(StandardCharsets.UTF_8));
+		Files.write(users.toPath(), "ID,Full Name,Books\n".getBytes(StandardCharsets.UTF_8));
+		CatalogOptions options = new CatalogOptions();
+		options.setCatalogPath(books.getPath());
+		options.setUserPath(users.getPath());
+		options.setParallelLoad(true);
+		options.setLoadThreads(4);
+		LibraryCatalog LC = new LibraryCatalog(options);
+		assertTrue("Failed to read every row with a line break in a quoted field", LC.getBookCatalog().size() == 500);
+		for (int id = 1; id <= 500; id++) {
+			Book b = LC.getBookCatalog().get(id - 1);
+			assertTrue("Failed to keep the line break inside a quoted field",
+					b.getId() == id && b.getTitle().equals(title(id)) && b.getAuthor().equals("Author"));
+		}
+	}
+	
+	@Test
+	public void testParallelLoadMatches() throws IOException {
+		// Rows of different lengths with quoted commas, empty fields and escaped quotes
+		StringBuilder rows = new StringBuilder("ID,Title,Author,Genre,Last Checkout Date,Checked Out\n");
+		for (int id = 1; id <= 20000; id++) {
+			rows.append(id).append(",\"Title, ").append("x".repeat(id % 37)).append("\",")
+					.append(id % 11 == 0 ? "" : "Author \"\"" + id % 101 + "\"\"").append(",Genre ").append(id % 7)
+					.append(',').append(LocalDate.of(2023, 1, 1).plusDays(id % 300)).append(',').append(id % 3 == 0)
+					.append(id % 1000 == 0 ? "\r\n" : "\n");
+		}
+		LibraryCatalog sequential = load(rows.toString(), "ID,Full Name,Books\n1,Tester,{3 6 9}\n");
+		for (int threads = 0; threads <= 8; threads++) {
+			CatalogOptions options = new CatalogOptions();
+			options.setCatalogPath(books.getPath());
+			options.setUserPath(users.getPath());
+			options.setParallelLoad(true);
+			options.setLoadThreads(threads);
+			LibraryCatalog parallel = new LibraryCatalog(options);
+			assertTrue("A parallel load on " + threads + " threads read a different amount of books",
+					parallel.getBookCatalog().size() == sequential.getBookCatalog().size());
+			for (int i = 0; i < sequential.getBookCatalog().size(); i++) {
+				assertTrue("A parallel load on " + threads + " threads read row " + (i + 1) + " differently",
+						describe(parallel.getBookCatalog().get(i)).equals(describe(sequential.getBookCatalog().get(i))));
+			}
+			assertTrue("A parallel load on " + threads + " threads gave a different report",
+					report(parallel).equals(report(sequential)));
+		}
+	}
+
+	/*
+	 * Helper methods
+	 */
+	private LibraryCatalog load(String bookRows, String userRows) throws IOException {
+		Files.write(books.toPath(), bookRows.getBytes(StandardCharsets.UTF_8));
+		Files.write(users.toPath(), userRows.getBytes(StandardCharsets.UTF_8));
+		CatalogOptions options = new CatalogOptions();
+		options.setCatalogPath(books.getPath());
+		options.setUserPath(users.getPath());
+		return new LibraryCatalog(options);
+	}
+	private String describe(Book book) {
+		return book.getId() + "," + book.getTitle() + "," + book.getAuthor() + "," + book.getGenre() + ","
+				+ book.getLastCheckOut() + "," + book.isCheckedOut();
+	}
+	private String report(LibraryCatalog catalog) throws IOException {
+		StringWriter out = new StringWriter();
+		catalog.writeReport(out);
+		return out.toString();
+	}
+	private String title(int id) {
+		String title = "First line " + id + "\n";
+		for (int i = 0; i < id % 50; i++) {
+			title += "Second line ";
+		}
+		return title;
+	}
+	private boolean rejected(String bookRows, String userRows) throws IOException {
+		try {
+			load(bookRows, userRows);
+			return false;
+		} catch (NumberFormatException e) {
+			return true;
+		}
+	}
+	private Book findBookById(List<Book> L, int id) {
+		for(Book b: L) {
+			if(b.getId() == id)
+				return b;
+		}
+		return null;
+	}
+	private User findUserById(List<User> L, int id) {
+		for(User u: L) {
+			if(u.getId() == id)
+				return u;
+		}
+		return null;
+	}
+}
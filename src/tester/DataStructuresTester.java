@@ -0,0 +1,171 @@
+package tester;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import data_structures.IntArrayList;
+import data_structures.IntHashMap;
+import data_structures.IntIntHashMap;
+import data_structures.StringDictionary;
+
+/*
+ * Tests the primitive maps, lists and dictionaries the catalog uses in place of boxed collections.
+ */
+public class DataStructuresTester {
+
+	@Test
+	public void testIntHashMap() {
+		IntHashMap<String> map = new IntHashMap<>();
+		assertTrue("A new map is not empty", map.isEmpty() && map.get(1) == null);
+		assertTrue("Failed to put a new key", map.put(1, "one") == null && map.put(-1, "minus one") == null);
+		assertTrue("Failed to replace a value", map.put(1, "uno").equals("one") && map.size() == 2);
+		assertTrue("Failed to get the values put", map.get(1).equals("uno") && map.get(-1).equals("minus one"));
+		assertTrue("Found a key that was never put", !map.containsKey(2) && map.remove(2) == null);
+		assertTrue("Failed to remove a key", map.remove(1).equals("uno") && !map.containsKey(1) && map.size() == 1);
+		try {
+			map.put(3, null);
+			fail("Stored a null value");
+		} catch (IllegalArgumentException e) {
+			assertTrue("Changed when a null value was rejected", map.size() == 1 && !map.containsKey(3));
+		}
+		map.clear();
+		assertTrue("Failed to clear the map", map.isEmpty() && map.get(-1) == null);
+	}
+	@Test
+	public void testIntHashMapGrowAndRemove() {
+		IntHashMap<Integer> map = new IntHashMap<>();
+		// Enough keys to grow the table several times and build long probe runs
+		for (int key = -5000; key < 5000; key++)
+			map.put(key * 16, key);
+		assertTrue("Lost entries while growing", map.size() == 10000 && allPresent(map, 1));
+		// Removing every other key closes gaps in the middle of probe runs
+		for (int key = -5000; key < 5000; key += 2)
+			map.remove(key * 16);
+		assertTrue("Lost entries after removes", map.size() == 5000 && allPresent(map, 2));
+		for (int key = -5000; key < 5000; key += 2) {
+			if (map.containsKey(key * 16))
+				fail("Found key " + key * 16 + " after it was removed");
+		}
+	}
+
+	@Test
+	public void testIntArrayList() {
+		IntArrayList list = new IntArrayList();
+		assertTrue("A new list is not empty", list.isEmpty() && list.toArray().length == 0);
+		for (int i = 0; i < 100; i++)
+			list.add(i * 2);
+		assertTrue("Failed to add past the first capacity", list.size() == 100 && list.get(0) == 0 && list.get(99) == 198);
+		assertTrue("Failed to replace a value", list.set(10, -1) == 20 && list.get(10) == -1);
+		assertTrue("Failed to find values", list.indexOf(-1) == 10 && list.contains(198) && !list.contains(3) && list.indexOf(3) == -1);
+		assertTrue("Failed to remove a value", list.removeAt(0) == 0 && list.size() == 99 && list.get(0) == 2 && list.get(98) == 198);
+		list.trimToSize();
+		int[] values = list.toArray();
+		assertTrue("Changed its values when trimmed", values.length == 99 && values[9] == -1 && values[98] == 198);
+		list.clear();
+		list.trimToSize();
+		list.add(7);
+		assertTrue("Failed to add after being cleared", list.size() == 1 && list.get(0) == 7);
+	}
+	@Test
+	public void testIntArrayListOutOfBounds() {
+		IntArrayList list = new IntArrayList(0);
+		list.add(1);
+		assertTrue("Got a value past the end", outOfBounds(() -> list.get(1)));
+		assertTrue("Set a value before the start", outOfBounds(() -> list.set(-1, 0)));
+		assertTrue("Removed a value past the end", outOfBounds(() -> list.removeAt(1)));
+		assertTrue("Changed when a remove failed", list.size() == 1 && list.get(0) == 1);
+	}
+
+	@Test
+	public void testIntIntHashMap() {
+		IntIntHashMap map = new IntIntHashMap();
+		assertTrue("A new map is not empty", map.isEmpty() && map.get(1) == IntIntHashMap.NO_VALUE);
+		assertTrue("Failed to put a new key", map.put(1, 10) == IntIntHashMap.NO_VALUE && map.put(-1, -2) == IntIntHashMap.NO_VALUE);
+		assertTrue("Failed to replace a value", map.put(1, 0) == 10 && map.size() == 2);
+		assertTrue("Failed to get the values put", map.get(1) == 0 && map.get(-1) == -2);
+		assertTrue("Found a key that was never put", !map.containsKey(2) && map.remove(2) == IntIntHashMap.NO_VALUE);
+		assertTrue("Failed to remove a key", map.remove(1) == 0 && !map.containsKey(1) && map.size() == 1);
+		try {
+			map.put(3, IntIntHashMap.NO_VALUE);
+			fail("Stored NO_VALUE");
+		} catch (IllegalArgumentException e) {
+			assertTrue("Changed when NO_VALUE was rejected", map.size() == 1 && !map.containsKey(3));
+		}
+		map.clear();
+		assertTrue("Failed to clear the map", map.isEmpty() && map.get(-1) == IntIntHashMap.NO_VALUE);
+	}
+	@Test
+	public void testIntIntHashMapGrowAndRemove() {
+		// Starts small so the table grows several times
+		IntIntHashMap map = new IntIntHashMap(1);
+		for (int key = 0; key < 20000; key++)
+			map.put(key * 1024, key);
+		assertTrue("Lost entries while growing", map.size() == 20000);
+		// Removing every third key closes gaps in the middle of probe runs
+		for (int key = 0; key < 20000; key += 3)
+			map.remove(key * 1024);
+		for (int key = 0; key < 20000; key++) {
+			int expected = key % 3 == 0 ? IntIntHashMap.NO_VALUE : key;
+			if (map.get(key * 1024) != expected)
+				fail("Key " + key * 1024 + " has the wrong value after removes");
+		}
+		assertTrue("Has the wrong size after removes", map.size() == 20000 - 6667);
+	}
+
+	@Test
+	public void testStringDictionary() {
+		StringDictionary dictionary = new StringDictionary();
+		assertTrue("Gave a code to null", dictionary.code(null) == StringDictionary.NO_CODE && dictionary.get(StringDictionary.NO_CODE) == null);
+		assertTrue("Failed to give codes in the order first seen", dictionary.code("Fiction") == 0 && dictionary.code("Poetry") == 1);
+		assertTrue("Gave a second code to the same String", dictionary.code(new String("Fiction")) == 0 && dictionary.size() == 2);
+		assertTrue("Failed to find a code", dictionary.find("Poetry") == 1);
+		assertTrue("Gave a code when only looking for one", dictionary.find("Drama") == StringDictionary.NO_CODE && dictionary.size() == 2);
+		String fiction = dictionary.get(0);
+		assertTrue("Failed to share one String per code", fiction.equals("Fiction") && dictionary.get(dictionary.code(new String("Fiction"))) == fiction);
+		// Enough codes to grow the table of Strings several times
+		for (int i = 0; i < 1000; i++)
+			dictionary.code("Genre " + i);
+		assertTrue("Lost codes while growing", dictionary.size() == 1002 && dictionary.get(1001).equals("Genre 999") && dictionary.find("Genre 0") == 2);
+	}
+	@Test
+	public void testStringDictionaryMerge() {
+		StringDictionary shared = new StringDictionary();
+		shared.code("Poetry");
+		StringDictionary part = new StringDictionary();
+		part.code("Fiction");
+		part.code("Poetry");
+		part.code("Drama");
+		// Codes only mean something within their own dictionary
+		assertTrue("Codes of different dictionaries should differ", part.find("Poetry") == 1 && shared.find("Poetry") == 0);
+		int[] codes = part.mergeInto(shared);
+		assertTrue("Failed to map every code of the merged dictionary", codes.length == 3);
+		for (int code = 0; code < codes.length; code++) {
+			if (!shared.get(codes[code]).equals(part.get(code)))
+				fail("Merged code " + code + " doesn't give the same String");
+		}
+		assertTrue("Gave new codes to Strings already present", codes[1] == 0 && shared.size() == 3);
+		assertTrue("Merging an empty dictionary gave codes", new StringDictionary().mergeInto(shared).length == 0 && shared.size() == 3);
+	}
+
+	/*
+	 * Helper methods
+	 */
+	private boolean allPresent(IntHashMap<Integer> map, int step) {
+		for (int key = -5000 + step - 1; key < 5000; key += step) {
+			Integer value = map.get(key * 16);
+			if (value == null || value != key)
+				return false;
+		}
+		return true;
+	}
+	private boolean outOfBounds(Runnable action) {
+		try {
+			action.run();
+			return false;
+		} catch (IndexOutOfBoundsException e) {
+			return true;
+		}
+	}
+}
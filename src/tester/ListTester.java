@@ -0,0 +1,208 @@
+package tester;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import data_structures.ArrayList;
+import data_structures.DoublyLinkedList;
+import data_structures.SinglyLinkedList;
+import interfaces.List;
+
+/*
+ * Tests the three List implementations the same way, including the cursor the linked lists keep
+ * to find positions faster.
+ */
+public class ListTester {
+
+	@Test
+	public void testGetAfterRemove() {
+		for (List<Integer> list : emptyLists()) {
+			fill(list, 10);
+			list.get(5);
+			list.remove(5);
+			assertTrue(name(list) + " failed to find the element after the one removed", list.get(5) == 6);
+			assertTrue(name(list) + " failed to find the element before the one removed", list.get(4) == 4);
+			assertTrue(name(list) + " failed to find the last element after a remove", list.get(8) == 9);
+			list.get(8);
+			list.remove(8);
+			assertTrue(name(list) + " failed to find the new last element", list.get(7) == 8);
+			list.get(0);
+			list.remove(0);
+			assertTrue(name(list) + " failed to find the new first element", list.get(0) == 1);
+			assertTrue(name(list) + " has the wrong size after removing", list.size() == 7);
+		}
+	}
+	@Test
+	public void testGetAfterAdd() {
+		for (List<Integer> list : emptyLists()) {
+			fill(list, 10);
+			list.get(6);
+			list.add(3, -1);
+			assertTrue(name(list) + " failed to find an element moved by an add", list.get(7) == 6);
+			assertTrue(name(list) + " failed to find the element added", list.get(3) == -1);
+			list.get(7);
+			list.addAll(0, listOf(-2, -3));
+			assertTrue(name(list) + " failed to find an element moved by addAll", list.get(9) == 6);
+		}
+	}
+	@Test(timeout = 30000)
+	public void testConcurrentGet() throws Exception {
+		for (List<Integer> list : emptyLists()) {
+			fill(list, 8);
+			AtomicReference<String> error = new AtomicReference<>();
+			// Nobody changes the list, so readers may share it. A short list makes each get short,
+			// so the readers move the cursor as often as possible.
+			Thread[] readers = new Thread[8];
+			for (int t = 0; t < readers.length; t++) {
+				int seed = t;
+				readers[t] = new Thread(() -> {
+					int index = seed;
+					try {
+						for (int i = 0; i < 3000000; i++) {
+							index = (index * 31 + 17) % list.size();
+							int found = list.get(index);
+							if (found != index)
+								error.compareAndSet(null, "get(" + index + ") returned " + found);
+						}
+					} catch (RuntimeException e) {
+						error.compareAndSet(null, "get(" + index + ") threw " + e);
+					}
+				});
+				readers[t].start();
+			}
+			for (Thread reader : readers)
+				reader.join();
+			if (error.get() != null)
+				fail(name(list) + " returned the wrong element to concurrent readers: " + error.get());
+		}
+	}
+
+	@Test
+	public void testAddAll() {
+		for (List<Integer> list : emptyLists()) {
+			list.addAll(listOf(3, 4));
+			list.addAll(0, listOf(0, 1));
+			list.addAll(2, listOf(2));
+			list.addAll(listOf());
+			assertTrue(name(list) + " failed to add lists at the front, middle and end", matches(list, 0, 1, 2, 3, 4));
+			list.add(5);
+			assertTrue(name(list) + " lost its last element after addAll", list.last() == 5 && list.size() == 6);
+			list.addAll(list);
+			assertTrue(name(list) + " failed to add itself", matches(list, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5));
+			list.ensureCapacity(100);
+			list.trimToSize();
+			assertTrue(name(list) + " changed its elements when resized", list.size() == 12 && list.get(11) == 5);
+		}
+	}
+	@Test
+	public void testAddAllOutOfBounds() {
+		for (List<Integer> list : emptyLists()) {
+			fill(list, 3);
+			try {
+				list.addAll(4, listOf(1));
+				fail(name(list) + " added a list past its end");
+			} catch (IndexOutOfBoundsException e) {
+				assertTrue(name(list) + " changed when addAll failed", list.size() == 3);
+			}
+		}
+	}
+
+	@Test
+	public void testRemoveIf() {
+		for (List<Integer> list : emptyLists()) {
+			fill(list, 10);
+			list.get(7);
+			assertTrue(name(list) + " failed to count the elements removed", list.removeIf(e -> e % 2 == 0) == 5);
+			assertTrue(name(list) + " kept the wrong elements", matches(list, 1, 3, 5, 7, 9));
+			assertTrue(name(list) + " failed to find an element after removeIf", list.get(3) == 7);
+			assertTrue(name(list) + " removed elements that didn't match", list.removeIf(e -> e > 100) == 0 && list.size() == 5);
+			// Removing the last element must leave the list able to append
+			list.removeIf(e -> e == 9);
+			list.add(11);
+			assertTrue(name(list) + " failed to append after its last element was removed", matches(list, 1, 3, 5, 7, 11));
+			list.removeIf(e -> true);
+			assertTrue(name(list) + " is not empty after removing everything", list.isEmpty());
+			list.add(1);
+			assertTrue(name(list) + " failed to add to a list emptied by removeIf", list.first() == 1 && list.last() == 1);
+		}
+	}
+	@Test
+	public void testRemoveAll() {
+		for (List<Integer> list : emptyLists()) {
+			list.addAll(listOf(1, 2, 1, 3, 1));
+			assertTrue(name(list) + " failed to remove every copy", list.removeAll(1) == 3 && matches(list, 2, 3));
+			assertTrue(name(list) + " removed an element it doesn't have", list.removeAll(7) == 0 && list.size() == 2);
+		}
+	}
+
+	@Test
+	public void testSpliterator() {
+		for (List<Integer> list : emptyLists()) {
+			fill(list, 5000);
+			Spliterator<Integer> whole = list.spliterator();
+			assertTrue(name(list) + " spliterator doesn't know its size",
+					whole.hasCharacteristics(Spliterator.SIZED | Spliterator.ORDERED) && whole.estimateSize() == 5000);
+			Spliterator<Integer> front = whole.trySplit();
+			if (front == null)
+				fail(name(list) + " spliterator failed to split 5000 elements");
+			// The front part comes first and both parts together hold every element once, in order
+			int[] next = { 0 };
+			boolean[] inOrder = { true };
+			front.forEachRemaining(e -> inOrder[0] &= e == next[0]++);
+			whole.forEachRemaining(e -> inOrder[0] &= e == next[0]++);
+			assertTrue(name(list) + " spliterator lost or reordered elements when split", inOrder[0] && next[0] == 5000);
+		}
+	}
+	@Test
+	public void testStreams() {
+		for (List<Integer> list : emptyLists()) {
+			assertTrue(name(list) + " streamed elements of an empty list", list.stream().count() == 0);
+			fill(list, 5000);
+			long sum = 5000L * 4999 / 2;
+			assertTrue(name(list) + " stream has the wrong sum", list.stream().mapToLong(e -> e).sum() == sum);
+			assertTrue(name(list) + " parallel stream has the wrong sum", list.parallelStream().mapToLong(e -> e).sum() == sum);
+			Object[] ordered = list.parallelStream().filter(e -> e % 1000 == 0).toArray();
+			assertTrue(name(list) + " parallel stream lost the order of the list",
+					ordered.length == 5 && (Integer) ordered[0] == 0 && (Integer) ordered[4] == 4000);
+		}
+	}
+
+	/*
+	 * Helper methods
+	 */
+	private List<List<Integer>> emptyLists() {
+		List<List<Integer>> lists = new ArrayList<>();
+		lists.add(new ArrayList<>());
+		lists.add(new SinglyLinkedList<>());
+		lists.add(new DoublyLinkedList<>());
+		return lists;
+	}
+	private void fill(List<Integer> list, int count) {
+		for (int i = 0; i < count; i++)
+			list.add(i);
+	}
+	private List<Integer> listOf(int... values) {
+		List<Integer> list = new ArrayList<>();
+		for (int value : values)
+			list.add(value);
+		return list;
+	}
+	private boolean matches(List<Integer> list, int... values) {
+		if (list.size() != values.length)
+			return false;
+		int i = 0;
+		for (int e : list) {
+			if (e != values[i++])
+				return false;
+		}
+		return true;
+	}
+	private String name(List<Integer> list) {
+		return list.getClass().getSimpleName();
+	}
+}
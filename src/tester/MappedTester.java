@@ -0,0 +1,175 @@
+package tester;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import main.Book;
+import main.CatalogOptions;
+import main.LibraryCatalog;
+
+/*
+ * Tests a catalog that keeps its books in memory-mapped files: the files are reopened while the
+ * books file is unchanged, keep the changes made to the catalog, and are made again once it changes.
+ */
+public class MappedTester {
+
+	File books;
+	File mapped;
+	File snapshot;
+
+	@Before
+	public void setup() throws IOException {
+		// A copy of the books file, so it can be touched
+		books = File.createTempFile("catalog", ".csv");
+		Files.copy(new File("data/catalog.csv").toPath(), books.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		mapped = File.createTempFile("catalog", ".map");
+		snapshot = File.createTempFile("catalog", ".snap");
+		mapped.delete();
+		snapshot.delete();
+	}
+	@After
+	public void cleanup() {
+		books.delete();
+		mapped.delete();
+		new File(mapped.getPath() + ".strings").delete();
+		snapshot.delete();
+		new File(snapshot.getPath() + ".tmp").delete();
+	}
+	@Test
+	public void testCreateAndReopen() throws IOException {
+		LibraryCatalog LC = open(mappedOptions());
+		assertTrue("Failed to make the mapped files", mapped.isFile() && new File(mapped.getPath() + ".strings").isFile());
+		LibraryCatalog heap = open(new CatalogOptions());
+		assertTrue("A mapped catalog differs from one on the heap", same(LC, heap));
+		LC.close();
+
+		LibraryCatalog reopened = open(mappedOptions());
+		assertTrue("A reopened mapped catalog differs from one on the heap", same(reopened, heap));
+		reopened.close();
+	}
+	@Test
+	public void testChangesPersist() throws IOException {
+		LibraryCatalog heap = open(new CatalogOptions());
+		makeChanges(heap);
+		LibraryCatalog LC = open(mappedOptions());
+		makeChanges(LC);
+		LC.close();
+
+		LibraryCatalog reopened = open(mappedOptions());
+		assertTrue("Lost changes kept in the mapped files", same(reopened, heap));
+		assertTrue("Lost a non-ASCII author kept in the mapped files",
+				reopened.searchForBook(b -> "Zo\u00eb Tester".equals(b.getAuthor())).size() == 1);
+		reopened.close();
+	}
+	@Test
+	public void testBooksFileChanged() throws IOException {
+		LibraryCatalog LC = open(mappedOptions());
+		makeChanges(LC);
+		LC.close();
+		assertTrue("Failed to touch the books file", books.setLastModified(books.lastModified() + 2000));
+
+		LibraryCatalog reopened = open(mappedOptions());
+		assertTrue("Reopened mapped files made from an older books file", same(reopened, open(new CatalogOptions())));
+		reopened.close();
+	}
+	@Test
+	public void testSnapshotWithMappedFiles() throws IOException {
+		CatalogOptions options = mappedOptions();
+		options.setSnapshotPath(snapshot.getPath());
+		LibraryCatalog heap = open(new CatalogOptions());
+		makeChanges(heap);
+		LibraryCatalog LC = open(options);
+		makeChanges(LC);
+		LC.saveSnapshot(snapshot.getPath());
+		long mappedSnapshot = snapshot.length();
+		LC.close();
+
+		LibraryCatalog reopened = open(options);
+		assertTrue("Lost changes kept in a snapshot and the mapped files", same(reopened, heap));
+		reopened.close();
+		heap.saveSnapshot(snapshot.getPath());
+		assertTrue("The snapshot of a mapped catalog holds the books as well", mappedSnapshot < snapshot.length());
+	}
+	@Test
+	public void testSegments() throws IOException {
+		// Small segments, so the books and their strings span many of them
+		CatalogOptions options = mappedOptions();
+		options.setMappedSegmentRows(7);
+		options.setMappedStringSegment(64);
+		LibraryCatalog LC = open(options);
+		LibraryCatalog heap = open(new CatalogOptions());
+		for (int i = 0; i < 300; i++) {
+			String title = "Segment " + "x".repeat(i % 40);
+			LC.addBook(title, "Author " + i, i % 2 == 0 ? "Fiction" : "Genre " + i % 9);
+			heap.addBook(title, "Author " + i, i % 2 == 0 ? "Fiction" : "Genre " + i % 9);
+		}
+		LC.removeBook(100);
+		heap.removeBook(100);
+		LC.checkOutBook(200);
+		heap.checkOutBook(200);
+		assertTrue("A catalog spanning many segments differs from one on the heap", same(LC, heap));
+		assertTrue("Added a book whose title doesn't fit in a segment", rejected(LC, "x".repeat(100)));
+		LC.close();
+
+		LibraryCatalog reopened = open(options);
+		assertTrue("A reopened catalog spanning many segments differs from one on the heap", same(reopened, heap));
+		reopened.close();
+	}
+
+	/*
+	 * Helper methods
+	 */
+	private CatalogOptions mappedOptions() {
+		CatalogOptions options = new CatalogOptions();
+		options.setMappedPath(mapped.getPath());
+		return options;
+	}
+	private LibraryCatalog open(CatalogOptions options) throws IOException {
+		options.setCatalogPath(books.getPath());
+		return new LibraryCatalog(options);
+	}
+	private void makeChanges(LibraryCatalog catalog) {
+		catalog.checkOutBook(19);
+		catalog.returnBook(20);
+		catalog.removeBook(17);
+		catalog.addBook("Mapped Test", "Zo\u00eb Tester", "Mystery");
+	}
+	// Compares the reports and the books of two catalogs
+	private boolean same(LibraryCatalog a, LibraryCatalog b) throws IOException {
+		if (!report(a).equals(report(b)) || a.getBookCatalog().size() != b.getBookCatalog().size()) {
+			return false;
+		}
+		for (int i = 0; i < a.getBookCatalog().size(); i++) {
+			if (!describe(a.getBookCatalog().get(i)).equals(describe(b.getBookCatalog().get(i)))) {
+				return false;
+			}
+		}
+		return true;
+	}
+	private String describe(Book book) {
+		return book.getId() + " " + book + " " + book.getGenre() + " " + book.isCheckedOut() + " " + book.getLastCheckOut();
+	}
+	private String report(LibraryCatalog catalog) throws IOException {
+		StringWriter out = new StringWriter();
+		catalog.writeReport(out);
+		return out.toString();
+	}
+	private boolean rejected(LibraryCatalog catalog, String title) {
+		int size = catalog.getBookCatalog().size();
+		try {
+			catalog.addBook(title, "Tester", "Mystery");
+			return false;
+		} catch (IllegalArgumentException e) {
+			return catalog.getBookCatalog().size() == size;
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package tester;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Objects;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import interfaces.List;
+import main.Book;
+import main.CatalogOptions;
+import main.LibraryCatalog;
+
+/*
+ * Tests that the changes made to a catalog survive a restart, through a snapshot, the mutation
+ * log or both, including checkouts made while a snapshot is being taken.
+ */
+public class PersistenceTester {
+
+	File snapshot;
+	File log;
+
+	@Before
+	public void setup() throws IOException {
+		snapshot = File.createTempFile("catalog", ".snap");
+		log = File.createTempFile("catalog", ".log");
+		snapshot.delete();
+		log.delete();
+	}
+	@After
+	public void cleanup() {
+		snapshot.delete();
+		log.delete();
+		new File(snapshot.getPath() + ".tmp").delete();
+		new File(log.getPath() + ".tmp").delete();
+	}
+	@Test
+	public void testSnapshotRoundTrip() throws IOException {
+		LibraryCatalog LC = open(true, false, false);
+		makeChanges(LC);
+		LC.saveSnapshot(snapshot.getPath());
+		LC.close();
+
+		checkChanges(open(true, false, false), "snapshot");
+	}
+	@Test
+	public void testLogReplay() throws IOException {
+		try (LibraryCatalog LC = open(false, true, false)) {
+			makeChanges(LC);
+		}
+
+		LibraryCatalog reopened = open(false, true, false);
+		checkChanges(reopened, "log");
+		reopened.close();
+		// Replaying a second time must not add the book again
+		LibraryCatalog again = open(false, true, false);
+		assertTrue("Replaying the log twice changed the catalog", again.getBookCatalog().size() == 50);
+		again.close();
+	}
+	@Test
+	public void testSnapshotCutsLog() throws IOException {
+		LibraryCatalog LC = open(true, true, false);
+		LC.checkOutBook(19);
+		LC.saveSnapshot(snapshot.getPath());
+		assertTrue("Failed to empty the log once the snapshot held its changes", log.length() == 0);
+		LC.returnBook(20);
+		LC.removeBook(16);
+		LC.addBook("Snapshot Test", "Tester", "Mystery");
+		LC.close();
+
+		LibraryCatalog reopened = open(true, true, false);
+		checkChanges(reopened, "snapshot and log");
+		reopened.close();
+	}
+	@Test
+	public void testCheckoutsDuringSnapshot() throws Exception {
+		LibraryCatalog LC = open(true, true, true);
+		for (int round = 0; round < 50; round++) {
+			// Each worker toggles its own books while a snapshot is taken, then the catalog is reopened
+			LibraryCatalog catalog = LC;
+			Thread[] workers = new Thread[4];
+			for (int t = 0; t < workers.length; t++) {
+				int first = 1 + t * 10;
+				workers[t] = new Thread(() -> {
+					for (int id = first; id < first + 10; id++) {
+						if (!catalog.checkOutBook(id))
+							catalog.returnBook(id);
+					}
+				});
+			}
+			for (Thread worker : workers)
+				worker.start();
+			LC.saveSnapshot(snapshot.getPath());
+			for (Thread worker : workers)
+				worker.join();
+
+			boolean[] checkedOut = new boolean[51];
+			LocalDate[] lastCheckOut = new LocalDate[51];
+			for (Book b : LC.getBookCatalog()) {
+				checkedOut[b.getId()] = b.isCheckedOut();
+				lastCheckOut[b.getId()] = b.getLastCheckOut();
+			}
+			LC.close();
+
+			LC = open(true, true, true);
+			for (Book b : LC.getBookCatalog()) {
+				if (b.isCheckedOut() != checkedOut[b.getId()] || !Objects.equals(b.getLastCheckOut(), lastCheckOut[b.getId()]))
+					fail("Lost a checkout or return of book " + b.getId() + " made while a snapshot was taken");
+			}
+		}
+		LC.close();
+	}
+	@Test
+	public void testChangesAfterClose() throws IOException {
+		LibraryCatalog LC = open(false, true, false);
+		LC.close();
+		assertTrue("Checked out a book after the catalog was closed", refused(() -> LC.checkOutBook(19)));
+		assertTrue("Returned a book after the catalog was closed", refused(() -> LC.returnBook(20)));
+		assertTrue("Removed a book after the catalog was closed", refused(() -> LC.removeBook(16)));
+		assertTrue("Added a book after the catalog was closed", refused(() -> LC.addBook("Closed", "Tester", "Mystery")));
+		assertTrue("Changed the catalog after it was closed", LC.getBookAvailability(19) && LC.getBookCatalog().size() == 50);
+		LC.close();
+
+		LibraryCatalog reopened = open(false, true, false);
+		assertTrue("Logged a change made after the catalog was closed",
+				reopened.getBookAvailability(19) && !reopened.getBookAvailability(20) && reopened.getBookCatalog().size() == 50);
+		reopened.close();
+	}
+
+	@Test
+	public void testGenreCountsAfterReplay() throws IOException {
+		try (LibraryCatalog LC = open(false, true, false)) {
+			for (int i = 0; i < 10; i++) {
+				LC.addBook("Genre Test " + i, "Tester", i % 2 == 0 ? "Genre " + i : "mystery");
+			}
+			LC.removeBook(16);
+			LC.removeBook(51);
+		}
+
+		LibraryCatalog reopened = open(false, true, false);
+		assertTrue("Miscounted a genre added through the log", reopened.bookCountByGenre("Genre 8") == 1);
+		assertTrue("Counted a book removed through the log", reopened.bookCountByGenre("Genre 0") == 0);
+		assertTrue("Miscounted a genre differing only in case after the log was replayed",
+				reopened.bookCountByGenre("MYSTERY") == 8 + 5);
+		assertTrue("Counted a book removed before the log was replayed", reopened.bookCountByGenre("Science Fiction") == 6);
+		reopened.close();
+	}
+
+	/*
+	 * Helper methods
+	 */
+	private LibraryCatalog open(boolean useSnapshot, boolean useLog, boolean concurrent) throws IOException {
+		CatalogOptions options = new CatalogOptions();
+		if (useSnapshot)
+			options.setSnapshotPath(snapshot.getPath());
+		if (useLog)
+			options.setLogPath(log.getPath());
+		options.setConcurrent(concurrent);
+		return new LibraryCatalog(options);
+	}
+	private boolean refused(Runnable change) {
+		try {
+			change.run();
+			return false;
+		} catch (IllegalStateException e) {
+			return true;
+		}
+	}
+	private void makeChanges(LibraryCatalog LC) {
+		LC.checkOutBook(19);
+		LC.returnBook(20);
+		LC.removeBook(16);
+		LC.addBook("Snapshot Test", "Tester", "Mystery");
+	}
+	private void checkChanges(LibraryCatalog LC, String source) {
+		assertTrue("Failed to restore a checkout from the " + source, !LC.getBookAvailability(19));
+		assertTrue("Failed to restore a return from the " + source, LC.getBookAvailability(20));
+		assertTrue("Failed to restore a removal from the " + source, findBookById(LC.getBookCatalog(), 16) == null);
+		Book added = findBookById(LC.getBookCatalog(), 51);
+		assertTrue("Failed to restore an added book from the " + source,
+				added != null && added.getTitle().equals("Snapshot Test") && added.getGenre().equals("Mystery"));
+		assertTrue("Failed to restore the size of the catalog from the " + source, LC.getBookCatalog().size() == 50);
+		assertTrue("Failed to restore the users from the " + source, LC.getUsers().size() == 30);
+	}
+	private Book findBookById(List<Book> L, int id) {
+		for(Book b: L) {
+			if(b.getId() == id)
+				return b;
+		}
+		return null;
+	}
+}
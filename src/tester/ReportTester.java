@@ -0,0 +1,307 @@
+package tester;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.Test;
+
+import data_structures.IntArrayList;
+import main.Book;
+import main.CatalogOptions;
+import main.LibraryCatalog;
+import main.User;
+
+/*
+ * Tests the ways a catalog can produce its report: streamed or rendered in memory, on a pool,
+ * from cached sections and in the background. Each way must give the same report.
+ */
+public class ReportTester {
+
+	@Test
+	public void testReportIsStreamed() throws IOException {
+		LibraryCatalog LC = new LibraryCatalog();
+		LargestWrite out = new LargestWrite();
+		LC.writeReport(out);
+		assertTrue("Wrote the report as a whole instead of streaming it", out.largest < out.total.length() / 2);
+		assertTrue("A streamed report differs from the rendered one", out.total.toString().equals(report(concurrent())));
+	}
+
+	@Test
+	public void testDirectChanges() throws IOException {
+		for (boolean cached : new boolean[] {false, true}) {
+			CatalogOptions options = new CatalogOptions();
+			options.setReportCache(cached);
+			LibraryCatalog LC = new LibraryCatalog(options);
+			report(LC);
+			Book held = LC.getBookCatalog().get(1);
+			held.setCheckedOut(!held.isCheckedOut());
+			checkCaughtUp(LC, "setCheckedOut");
+			held.setLastCheckOut(LocalDate.of(2023, 1, 2));
+			checkCaughtUp(LC, "setLastCheckOut");
+			Book free = LC.getBookCatalog().get(3);
+			free.checkIn();
+			free.checkOut(LocalDate.of(2023, 2, 3).toEpochDay());
+			checkCaughtUp(LC, "checkOut");
+			User user = LC.getUsers().get(0);
+			IntArrayList ids = new IntArrayList();
+			ids.add(free.getId());
+			user.setCheckedOutIds(ids, id -> id == free.getId() ? free : null);
+			checkCaughtUp(LC, "setCheckedOutIds");
+			user.setCheckedOutList(LC.getUsers().get(1).getCheckedOutList());
+			checkCaughtUp(LC, "setCheckedOutList");
+		}
+	}
+
+	@Test
+	public void testGenreCounts() throws IOException {
+		LibraryCatalog LC = new LibraryCatalog();
+		for (int i = 0; i < 20; i++) {
+			LC.addBook("Genre Test " + i, "Tester", "Genre " + i);
+		}
+		for (int i = 0; i < 20; i++) {
+			assertTrue("Miscounted a genre outside the usual five", LC.bookCountByGenre("genre " + i) == 1);
+		}
+		assertTrue("Left a genre outside the usual five out of the report", report(LC).contains("Genre 19\t"));
+		LC.addBook("Case Test", "Tester", "mystery");
+		LC.addBook("Case Test", "Tester", "MYSTERY");
+		assertTrue("Counted genres differing only in case apart", LC.bookCountByGenre("Mystery") == 10);
+		assertTrue("Listed genres differing only in case apart", !report(LC).contains("MYSTERY"));
+		LC.removeBook(51);
+		LC.removeBook(71);
+		assertTrue("Kept counting removed books", LC.bookCountByGenre("Genre 0") == 0 && LC.bookCountByGenre("Mystery") == 9);
+		assertTrue("Listed a genre with no books left", !report(LC).contains("Genre 0\t"));
+	}
+
+	@Test
+	public void testUnchangedReportIsKept() throws IOException {
+		CatalogOptions options = new CatalogOptions();
+		options.setReportCache(true);
+		LibraryCatalog LC = new LibraryCatalog(options);
+		Path file = Paths.get("library_report.txt");
+		LC.generateReport(false);
+		FileTime old = FileTime.fromMillis(1000);
+		Files.setLastModifiedTime(file, old);
+		LC.generateReport(false);
+		assertTrue("Wrote the report file again with nothing changed", Files.getLastModifiedTime(file).equals(old));
+		LC.checkOutBook(1);
+		LC.generateReport(false);
+		assertTrue("Kept the report file after a checkout", !Files.getLastModifiedTime(file).equals(old));
+		assertTrue("The report file differs from the report", new String(Files.readAllBytes(file)).equals(report(LC)));
+	}
+	@Test
+	public void testCachedSections() throws IOException {
+		MovableClock clock = new MovableClock(LocalDate.of(2023, 9, 15));
+		CatalogOptions options = new CatalogOptions();
+		options.setClock(clock);
+		options.setReportCache(true);
+		LibraryCatalog cached = new LibraryCatalog(options);
+		options = new CatalogOptions();
+		options.setClock(clock);
+		LibraryCatalog plain = new LibraryCatalog(options);
+		assertTrue("A cached report differs", report(cached).equals(report(plain)));
+		String before = report(cached);
+		cached.checkOutBook(1);
+		plain.checkOutBook(1);
+		assertTrue("Kept the cached report after a checkout", !report(cached).equals(before));
+		assertTrue("A cached report differs after a checkout", report(cached).equals(report(plain)));
+		cached.returnBook(2);
+		plain.returnBook(2);
+		assertTrue("A cached report differs after a return", report(cached).equals(report(plain)));
+		before = report(cached);
+		cached.removeBook(5);
+		plain.removeBook(5);
+		assertTrue("Kept the cached report after a removal", !report(cached).equals(before));
+		assertTrue("A cached report differs after a removal", report(cached).equals(report(plain)));
+		before = report(cached);
+		clock.advance(30);
+		assertTrue("Kept the cached fees after the fee day changed", !report(cached).equals(before));
+		assertTrue("A cached report differs after the fee day changed", report(cached).equals(report(plain)));
+	}
+
+	@Test
+	public void testAsyncReportMatches() throws IOException {
+		Path file = Paths.get("library_report.txt");
+		for (boolean concurrent : new boolean[] {false, true}) {
+			CatalogOptions options = new CatalogOptions();
+			options.setConcurrent(concurrent);
+			LibraryCatalog LC = new LibraryCatalog(options);
+			LC.checkOutBook(1);
+			LC.generateReportAsync().join();
+			byte[] async = Files.readAllBytes(file);
+			Files.delete(file);
+			LC.generateReport(false);
+			assertTrue("The report written in the background differs from generateReport",
+					Arrays.equals(async, Files.readAllBytes(file)));
+			LC.close();
+		}
+	}
+	@Test
+	public void testAsyncRequestsDuringWrite() throws IOException {
+		Path file = Paths.get("library_report.txt");
+		for (boolean concurrent : new boolean[] {false, true}) {
+			CatalogOptions options = new CatalogOptions();
+			options.setConcurrent(concurrent);
+			LibraryCatalog LC = new LibraryCatalog(options);
+			CompletableFuture<?>[] futures = new CompletableFuture<?>[200];
+			for (int i = 0; i < futures.length; i++) {
+				// Requests come in faster than the file is written, each after a change
+				if (!LC.checkOutBook(1 + i % 10))
+					LC.returnBook(1 + i % 10);
+				futures[i] = LC.generateReportAsync();
+			}
+			futures[futures.length - 1].join();
+			assertTrue("The file misses the changes made before the last request",
+					new String(Files.readAllBytes(file)).equals(report(LC)));
+			CompletableFuture.allOf(futures).join();
+			LC.close();
+		}
+	}
+	@Test
+	public void testAsyncFailure() throws IOException {
+		Path file = Paths.get("library_report.txt");
+		Files.deleteIfExists(file);
+		// A directory where the report goes can't be written as a file
+		Files.createDirectory(file);
+		try {
+			for (boolean concurrent : new boolean[] {false, true}) {
+				CatalogOptions options = new CatalogOptions();
+				options.setConcurrent(concurrent);
+				LibraryCatalog LC = new LibraryCatalog(options);
+				assertTrue("Completed the future of a report that could not be written", failed(LC.generateReportAsync()));
+				LC.checkOutBook(1);
+				assertTrue("A request after a failed write did not get its own error", failed(LC.generateReportAsync()));
+				LC.close();
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testParallelReportMatches() throws IOException {
+		// Enough books and borrowers that both sections are split into several chunks
+		File books = File.createTempFile("catalog", ".csv");
+		File users = File.createTempFile("user", ".csv");
+		try {
+			StringBuilder rows = new StringBuilder("ID,Title,Author,Genre,Last Checkout Date,Checked Out\n");
+			for (int id = 1; id <= 70000; id++) {
+				rows.append(id).append(",Title ").append(id).append(",Author ").append(id % 97).append(",Fiction,")
+						.append(LocalDate.of(2023, 1, 1).plusDays(id % 250)).append(',').append(id % 3 != 0).append('\n');
+			}
+			Files.write(books.toPath(), rows.toString().getBytes(StandardCharsets.UTF_8));
+			rows = new StringBuilder("ID,Full Name,Books\n");
+			for (int id = 1; id <= 20000; id++) {
+				rows.append(id).append(",User ").append(id).append(",{").append(id).append(' ').append(id + 20000)
+						.append(' ').append(id + 40000).append("}\n");
+			}
+			Files.write(users.toPath(), rows.toString().getBytes(StandardCharsets.UTF_8));
+			CatalogOptions options = new CatalogOptions();
+			options.setCatalogPath(books.getPath());
+			options.setUserPath(users.getPath());
+			String sequential = report(new LibraryCatalog(options));
+			for (int threads = 0; threads <= 6; threads++) {
+				options.setParallelReport(true);
+				options.setReportThreads(threads);
+				try (LibraryCatalog parallel = new LibraryCatalog(options)) {
+					assertTrue("A parallel report on " + threads + " threads differs from a sequential one",
+							report(parallel).equals(sequential));
+				}
+			}
+		} finally {
+			books.delete();
+			users.delete();
+		}
+	}
+
+	/*
+	 * Helper methods
+	 */
+	// Compares the report and the overdue books with those of a catalog built from the same books and users
+	private void checkCaughtUp(LibraryCatalog catalog, String change) throws IOException {
+		LibraryCatalog fresh = new LibraryCatalog(catalog.getBookCatalog(), catalog.getUsers());
+		assertTrue("The report missed a change made with " + change, report(catalog).equals(report(fresh)));
+		LocalDate day = LocalDate.of(2023, 9, 15);
+		assertTrue("The overdue books missed a change made with " + change,
+				catalog.getOverdueBooks(day).size() == fresh.getOverdueBooks(day).size());
+	}
+	private LibraryCatalog concurrent() throws IOException {
+		CatalogOptions options = new CatalogOptions();
+		options.setConcurrent(true);
+		return new LibraryCatalog(options);
+	}
+	private boolean failed(CompletableFuture<Void> future) {
+		try {
+			future.join();
+			return false;
+		} catch (CompletionException e) {
+			return e.getCause() instanceof IOException;
+		}
+	}
+	private String report(LibraryCatalog catalog) throws IOException {
+		StringWriter out = new StringWriter();
+		catalog.writeReport(out);
+		return out.toString();
+	}
+	// A clock that stays on one day until it is moved
+	private static class MovableClock extends Clock {
+		private Instant now;
+
+		MovableClock(LocalDate day) {
+			now = day.atStartOfDay(ZoneOffset.UTC).toInstant();
+		}
+		void advance(int days) {
+			now = now.plusSeconds(days * 86400L);
+		}
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+	// Keeps what is written and the length of the longest single write
+	private static class LargestWrite extends Writer {
+		private final StringBuilder total = new StringBuilder();
+		private int largest;
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			total.append(cbuf, off, len);
+			largest = Math.max(largest, len);
+		}
+		@Override
+		public void write(String str, int off, int len) {
+			total.append(str, off, off + len);
+			largest = Math.max(largest, len);
+		}
+		@Override
+		public void flush() {
+		}
+		@Override
+		public void close() {
+		}
+	}
+}